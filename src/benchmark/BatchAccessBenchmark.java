@@ -0,0 +1,86 @@
+package benchmark;
+
+import core.CPU;
+import core.Cache;
+import core.trace.TraceReader;
+import core.utils.CommandLineParser;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares Cache.access one record at a time with Cache.accessBatch over batches of increasing size, on the same
+ * decoded trace, and checks that both count the same hits and misses.
+ * Usage: BatchAccessBenchmark [trace] [rounds] [iterations]
+ */
+public class BatchAccessBenchmark
+{
+    private static final int[] BATCH_SIZES = {1, 16, 64, 256, 1024, 4096, 16384};
+
+    public static void main(String[] args) throws IOException
+    {
+        File trace = new File(args.length > 0 ? args[0] : "Trace Files/Trace1.trc");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        RecordedAccesses accesses = RecordedAccesses.load(trace);
+        byte[] kinds = new byte[accesses.count];
+        for(int i = 0; i < accesses.count; i++) kinds[i] = (byte) (accesses.writes[i] ? TraceReader.WRITE : TraceReader.READ);
+
+        //Index 0 is the per-access baseline
+        Cache[] caches = new Cache[BATCH_SIZES.length + 1];
+        double[] best = new double[caches.length];
+        for(int c = 0; c < caches.length; c++)
+        {
+            caches[c] = CommandLineParser.parseCommands(new String[]{"-s", "64", "-b", "16", "-a", "4", "--trace-cache", "off"}).getCache();
+            best[c] = Double.MAX_VALUE;
+        }
+
+        for(int round = 0; round < rounds; round++)
+        {
+            for(int c = 0; c < caches.length; c++)
+            {
+                long start = System.nanoTime();
+                for(int i = 0; i < iterations; i++)
+                {
+                    if(c == 0) replay(caches[c], accesses);
+                    else replay(caches[c], accesses, kinds, BATCH_SIZES[c - 1]);
+                }
+                best[c] = Math.min(best[c], (double) (System.nanoTime() - start) / ((long) iterations * accesses.count));
+            }
+        }
+
+        System.out.printf("Trace: %s, %d accesses\n", trace.getName(), accesses.count);
+        System.out.printf("%-12s %12s %12s %12s\n", "Batch", "ns/access", "Hits", "Misses");
+        for(int c = 0; c < caches.length; c++)
+        {
+            CPU cpu = caches[c].getCPU();
+            System.out.printf("%-12s %12.2f %12d %12d\n", c == 0 ? "per access" : Integer.toString(BATCH_SIZES[c - 1]), best[c],
+                    cpu.getStatistics().getHits(), cpu.getStatistics().getMisses());
+        }
+    }
+
+    private static void replay(Cache cache, RecordedAccesses accesses)
+    {
+        for(int i = 0; i < accesses.count; i++) cache.access(accesses.addresses[i], accesses.writes[i], accesses.data[i]);
+    }
+
+    /**
+     * Replays the accesses in batches, copied into batch arrays as a trace decoder would hand them over.
+     */
+    private static void replay(Cache cache, RecordedAccesses accesses, byte[] kinds, int batchSize)
+    {
+        int[] addresses = new int[batchSize];
+        byte[] batchKinds = new byte[batchSize];
+        int[] data = new int[batchSize];
+
+        for(int from = 0; from < accesses.count; from += batchSize)
+        {
+            int count = Math.min(batchSize, accesses.count - from);
+            System.arraycopy(accesses.addresses, from, addresses, 0, count);
+            System.arraycopy(kinds, from, batchKinds, 0, count);
+            System.arraycopy(accesses.data, from, data, 0, count);
+            cache.accessBatch(addresses, batchKinds, data, count, null);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import core.CPU;
+import core.Cache;
+import core.utils.CommandLineParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Replays the accesses of a trace through Cache.access and reports the time and the bytes allocated per access, once
+ * the cache is warm. Trailing arguments configure the cache like the simulator's, for example -s 512 -b 16 -a 4.
+ * Usage: CacheAccessBenchmark [trace] [iterations] [simulator flags...]
+ */
+public class CacheAccessBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        File trace = new File(args.length > 0 ? args[0] : "Trace Files/Trace1.trc");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String[] flags = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[]{"-s", "512", "-b", "16", "-a", "4"};
+
+        CPU cpu = CommandLineParser.parseCommands(flags);
+        Cache cache = cpu.getCache();
+
+        //Decode once, so only the cache is measured
+        RecordedAccesses accesses = RecordedAccesses.load(trace);
+        int count = accesses.count;
+        int[] addresses = accesses.addresses;
+        int[] data = accesses.data;
+        boolean[] writes = accesses.writes;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.printf("Trace: %s, %d accesses, engine %s\n", trace.getName(), count, cache.getEngine());
+
+        for(int i = 0; i < iterations; i++)
+        {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long hits = 0;
+
+            for(int j = 0; j < count; j++) if(cache.access(addresses[j], writes[j], data[j])) hits++;
+
+            long nanos = System.nanoTime() - start;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            System.out.printf("Pass %2d: %8.2f ns/access %10.3f bytes/access %6.2f%% hits\n",
+                    i, (double) nanos / count, (double) allocated / count, 100d * hits / count);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import core.trace.TraceFiles;
+import core.trace.TraceReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Data accesses and fetches of a trace decoded into arrays, so benchmarks can replay them without decoding again.
+ */
+class RecordedAccesses
+{
+    int count;
+    int[] addresses = new int[1 << 16];
+    int[] data = new int[1 << 16];
+    boolean[] writes = new boolean[1 << 16];
+
+    /**
+     * Decodes every access of a trace.
+     * @param trace the trace file
+     * @return the accesses
+     * @throws IOException if the trace could not be read
+     */
+    static RecordedAccesses load(File trace) throws IOException
+    {
+        RecordedAccesses accesses = new RecordedAccesses();
+
+        try(TraceReader reader = TraceFiles.open(trace))
+        {
+            int kind;
+            while((kind = reader.next()) != TraceReader.END)
+            {
+                if(kind == TraceReader.BOUNDARY) continue;
+                accesses.add(reader.getAddress(), kind == TraceReader.WRITE, reader.getData());
+            }
+        }
+
+        return accesses;
+    }
+
+    /**
+     * Appends an access.
+     * @param address the address
+     * @param write true for a write, false for a read
+     * @param value the data written
+     */
+    void add(int address, boolean write, int value)
+    {
+        if(count == addresses.length)
+        {
+            addresses = Arrays.copyOf(addresses, count * 2);
+            data = Arrays.copyOf(data, count * 2);
+            writes = Arrays.copyOf(writes, count * 2);
+        }
+
+        addresses[count] = address;
+        data[count] = value;
+        writes[count] = write;
+        count++;
+    }
+}
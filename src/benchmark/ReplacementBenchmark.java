@@ -0,0 +1,101 @@
+package benchmark;
+
+import core.Cache;
+import core.utils.CommandLineParser;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays a trace and a synthetic pattern through the same cache under every replacement policy, and reports the
+ * time per access and the hit rate. The pattern reads a working set of 3/4 of the cache twice between scans of half the
+ * cache that are never reused, then loops over 3/2 of the cache, where recency-based policies thrash.
+ * Usage: ReplacementBenchmark [trace] [rounds] [iterations]
+ */
+public class ReplacementBenchmark
+{
+    private static final String[] POLICIES = {"RR", "RND", "LRU", "PLRU", "SRRIP", "BRRIP", "DRRIP"};
+    private static final int CACHE_KB = 64;
+    private static final int BLOCK_SIZE = 16;
+
+    public static void main(String[] args) throws IOException
+    {
+        File trace = new File(args.length > 0 ? args[0] : "Trace Files/Trace1.trc");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        String[] names = {trace.getName(), "loop+scan"};
+        RecordedAccesses[] workloads = {RecordedAccesses.load(trace), loopAndScan()};
+        double[][] best = new double[workloads.length][POLICIES.length];
+        double[][] hitRates = new double[workloads.length][POLICIES.length];
+
+        for(int w = 0; w < workloads.length; w++) for(int p = 0; p < POLICIES.length; p++)
+        {
+            best[w][p] = Double.MAX_VALUE;
+            hitRates[w][p] = 100d * replay(newCache(POLICIES[p]), workloads[w]) / workloads[w].count;
+        }
+
+        //Interleave the policies so none is measured before the JIT has settled, and keep the best round
+        for(int round = 0; round < rounds; round++)
+        {
+            for(int w = 0; w < workloads.length; w++) for(int p = 0; p < POLICIES.length; p++)
+            {
+                Cache cache = newCache(POLICIES[p]);
+                long start = System.nanoTime();
+                for(int i = 0; i < iterations; i++) replay(cache, workloads[w]);
+                best[w][p] = Math.min(best[w][p], (double) (System.nanoTime() - start) / ((long) iterations * workloads[w].count));
+            }
+        }
+
+        System.out.printf("%d KB, %d byte blocks, 16 ways, flat engine, tags only\n", CACHE_KB, BLOCK_SIZE);
+        System.out.printf("%-14s %-8s %12s %10s\n", "Workload", "Policy", "ns/access", "Hit rate");
+
+        for(int w = 0; w < workloads.length; w++) for(int p = 0; p < POLICIES.length; p++)
+        {
+            System.out.printf("%-14s %-8s %12.2f %9.2f%%\n", names[w], POLICIES[p], best[w][p], hitRates[w][p]);
+        }
+    }
+
+    private static Cache newCache(String policy)
+    {
+        return CommandLineParser.parseCommands(new String[]{"-s", Integer.toString(CACHE_KB), "-b", Integer.toString(BLOCK_SIZE), "-a", "16",
+                "-r", policy, "--seed", "1", "--engine", "flat", "--tag-only", "on", "--trace-cache", "off"}).getCache();
+    }
+
+    /**
+     * Replays accesses through a cache.
+     * @param cache the cache
+     * @param accesses the accesses
+     * @return the number of hits
+     */
+    private static int replay(Cache cache, RecordedAccesses accesses)
+    {
+        int hits = 0;
+        for(int i = 0; i < accesses.count; i++) if(cache.access(accesses.addresses[i], accesses.writes[i], accesses.data[i])) hits++;
+        return hits;
+    }
+
+    /**
+     * Builds the synthetic pattern, one read per block.
+     * @return the accesses of the pattern
+     */
+    private static RecordedAccesses loopAndScan()
+    {
+        RecordedAccesses accesses = new RecordedAccesses();
+        int blocks = CACHE_KB * 1024 / BLOCK_SIZE;
+        int scanBase = 1 << 24;
+
+        //Working set reused between scans
+        for(int phase = 0; phase < 64; phase++)
+        {
+            for(int pass = 0; pass < 2; pass++) for(int b = 0; b < blocks * 3 / 4; b++) accesses.add(b * BLOCK_SIZE, false, 0);
+            for(int b = 0; b < blocks / 2; b++) accesses.add(scanBase + b * BLOCK_SIZE, false, 0);
+            scanBase += blocks / 2 * BLOCK_SIZE;
+        }
+
+        //Cyclic working set larger than the cache
+        for(int pass = 0; pass < 32; pass++) for(int b = 0; b < blocks * 3 / 2; b++) accesses.add(b * BLOCK_SIZE, false, 0);
+
+        return accesses;
+    }
+}
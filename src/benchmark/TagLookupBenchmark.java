@@ -0,0 +1,76 @@
+package benchmark;
+
+import data.ScalarTagMatcher;
+import data.TagMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the scalar and Vector API tag matchers on set lookups, for associativities from direct-mapped to well past
+ * 16 ways. Every configuration has the same number of lines, every line is valid and half of the lookups hit. Run
+ * with --add-modules jdk.incubator.vector to include the vector matcher.
+ * Usage: TagLookupBenchmark [lookups] [warmup iterations] [measured iterations]
+ */
+public class TagLookupBenchmark
+{
+    private static final int LINES = 1 << 16;
+    private static final int[] ASSOCIATIVITIES = {1, 2, 4, 8, 16, 32, 64, 128, 256};
+
+    public static void main(String[] args)
+    {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        List<TagMatcher> matchers = new ArrayList<>();
+        matchers.add(new ScalarTagMatcher());
+        TagMatcher best = TagMatcher.create();
+        if(!(best instanceof ScalarTagMatcher)) matchers.add(best);
+        else System.out.println("jdk.incubator.vector is not available, measuring the scalar matcher only");
+
+        System.out.printf("%-12s %-22s %12s %10s\n", "Ways", "Matcher", "ns/lookup", "Found");
+
+        for(int ways : ASSOCIATIVITIES)
+        {
+            SplittableRandom random = new SplittableRandom(ways);
+            int[] tags = new int[LINES];
+            long[] valid = new long[LINES / 64];
+            for(int i = 0; i < LINES; i++) tags[i] = random.nextInt(1 << 20);
+            for(int i = 0; i < valid.length; i++) valid[i] = -1L;
+
+            int sets = LINES / ways;
+            int[] bases = new int[lookups];
+            int[] keys = new int[lookups];
+            for(int i = 0; i < lookups; i++)
+            {
+                bases[i] = random.nextInt(sets) * ways;
+                keys[i] = random.nextBoolean() ? tags[bases[i] + random.nextInt(ways)] : (1 << 20) + random.nextInt(1 << 20);
+            }
+
+            for(TagMatcher matcher : matchers)
+            {
+                long found = 0;
+                for(int i = 0; i < warmup; i++) found = run(matcher, tags, valid, ways, bases, keys);
+
+                long start = System.nanoTime();
+                for(int i = 0; i < iterations; i++) found += run(matcher, tags, valid, ways, bases, keys);
+                double nanos = (double) (System.nanoTime() - start) / ((long) iterations * lookups);
+
+                System.out.printf("%-12d %-22s %12.2f %10d\n", ways, matcher, nanos, found);
+            }
+        }
+    }
+
+    /**
+     * Runs every lookup once.
+     * @return the number of lookups that found their tag, so the work cannot be optimised away
+     */
+    private static long run(TagMatcher matcher, int[] tags, long[] valid, int ways, int[] bases, int[] keys)
+    {
+        long found = 0;
+        for(int i = 0; i < bases.length; i++) if(matcher.find(tags, bases[i], ways, valid, keys[i]) >= 0) found++;
+        return found;
+    }
+}
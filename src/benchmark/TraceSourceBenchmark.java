@@ -0,0 +1,102 @@
+package benchmark;
+
+import core.trace.MappedTraceSource;
+import core.trace.StreamTraceSource;
+import core.trace.TraceParser;
+import core.trace.TraceReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compares the BufferedReader line reader with the stream and memory-mapped trace sources on a scaled-up trace.
+ * Usage: TraceSourceBenchmark [trace] [copies] [iterations]
+ */
+public class TraceSourceBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        File trace = new File(args.length > 0 ? args[0] : "Trace Files/Trace1.trc");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        File scaled = scale(trace, copies);
+        System.out.printf("Trace: %s x %d = %d MB\n", trace.getName(), copies, scaled.length() / (1024 * 1024));
+
+        for(int i = 0; i < iterations; i++)
+        {
+            long start = System.nanoTime();
+            long lines = readLines(scaled);
+            report("BufferedReader", lines, start, scaled);
+
+            start = System.nanoTime();
+            long records = drain(new TraceParser(new StreamTraceSource(new FileInputStream(scaled))));
+            report("Stream source", records, start, scaled);
+
+            start = System.nanoTime();
+            records = drain(new TraceParser(new MappedTraceSource(scaled)));
+            report("Mapped source", records, start, scaled);
+        }
+
+        Files.delete(scaled.toPath());
+    }
+
+
+    /**
+     * Writes the specified number of copies of a trace into a temporary file.
+     * @param trace the trace to copy
+     * @param copies the number of copies
+     * @return the temporary file
+     * @throws IOException if the file could not be written
+     */
+    private static File scale(File trace, int copies) throws IOException
+    {
+        File scaled = File.createTempFile("scaled", ".trc");
+        byte[] bytes = Files.readAllBytes(trace.toPath());
+        for(int i = 0; i < copies; i++) Files.write(scaled.toPath(), bytes, StandardOpenOption.APPEND);
+        return scaled;
+    }
+
+    /**
+     * Reads every line of a trace the way the simulator used to.
+     * @param trace the trace to read
+     * @return the number of lines
+     * @throws IOException if the trace could not be read
+     */
+    private static long readLines(File trace) throws IOException
+    {
+        long lines = 0;
+        try(BufferedReader br = new BufferedReader(new FileReader(trace)))
+        {
+            while(br.readLine() != null) lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Decodes every record of a trace.
+     * @param reader the reader over the trace
+     * @return the number of records
+     * @throws IOException if the trace could not be read
+     */
+    private static long drain(TraceReader reader) throws IOException
+    {
+        long records = 0;
+        try(reader)
+        {
+            while(reader.next() != TraceReader.END) records++;
+        }
+        return records;
+    }
+
+    private static void report(String name, long count, long start, File trace)
+    {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-16s %12d items %8.3f s %8.1f MB/s\n", name, count, seconds, trace.length() / (1024d * 1024d) / seconds);
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import core.CPU;
+import core.Cache;
+import core.utils.CommandLineParser;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Replays a trace through caches of increasing associativity, with and without way prediction, on both engines, and
+ * reports the time per access and the prediction accuracy.
+ * Usage: WayPredictionBenchmark [trace] [rounds] [iterations]
+ */
+public class WayPredictionBenchmark
+{
+    private static final int[] ASSOCIATIVITIES = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) throws IOException
+    {
+        File trace = new File(args.length > 0 ? args[0] : "Trace Files/Trace1.trc");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        RecordedAccesses accesses = RecordedAccesses.load(trace);
+        String[] engines = {"object", "flat"};
+        String[] predictions = {"off", "on"};
+        Cache[][][] caches = new Cache[engines.length][ASSOCIATIVITIES.length][predictions.length];
+        double[][][] best = new double[engines.length][ASSOCIATIVITIES.length][predictions.length];
+
+        for(int e = 0; e < engines.length; e++) for(int a = 0; a < ASSOCIATIVITIES.length; a++) for(int p = 0; p < predictions.length; p++)
+        {
+            CPU cpu = CommandLineParser.parseCommands(new String[]{"-s", "64", "-b", "16", "-a", Integer.toString(ASSOCIATIVITIES[a]),
+                    "--engine", engines[e], "--way-prediction", predictions[p], "--trace-cache", "off"});
+            caches[e][a][p] = cpu.getCache();
+            best[e][a][p] = Double.MAX_VALUE;
+
+            //Fill the cache, so the rounds measure the steady state
+            replay(caches[e][a][p], accesses);
+        }
+
+        //Interleave the configurations so none is measured before the JIT has settled, and keep the best round
+        for(int round = 0; round < rounds; round++)
+        {
+            for(int e = 0; e < engines.length; e++) for(int a = 0; a < ASSOCIATIVITIES.length; a++) for(int p = 0; p < predictions.length; p++)
+            {
+                long start = System.nanoTime();
+                for(int i = 0; i < iterations; i++) replay(caches[e][a][p], accesses);
+                best[e][a][p] = Math.min(best[e][a][p], (double) (System.nanoTime() - start) / ((long) iterations * accesses.count));
+            }
+        }
+
+        System.out.printf("Trace: %s, %d accesses\n", trace.getName(), accesses.count);
+        System.out.printf("%-8s %-6s %-12s %12s %10s\n", "Engine", "Ways", "Prediction", "ns/access", "Accuracy");
+
+        for(int e = 0; e < engines.length; e++) for(int a = 0; a < ASSOCIATIVITIES.length; a++) for(int p = 0; p < predictions.length; p++)
+        {
+            Cache cache = caches[e][a][p];
+            String accuracy = cache.isWayPrediction() ? String.format("%.2f%%", 100d * cache.getPredictedHits() / cache.getLookupHits()) : "-";
+            System.out.printf("%-8s %-6d %-12s %12.2f %10s\n", engines[e], ASSOCIATIVITIES[a], predictions[p], best[e][a][p], accuracy);
+        }
+    }
+
+    private static void replay(Cache cache, RecordedAccesses accesses)
+    {
+        for(int i = 0; i < accesses.count; i++) cache.access(accesses.addresses[i], accesses.writes[i], accesses.data[i]);
+    }
+}
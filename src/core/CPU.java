@@ -1,28 +1,42 @@
 package core;
 
+import core.prefetch.PrefetchStage;
+import core.trace.DecodeMode;
+import core.trace.TraceBatch;
+import core.trace.TraceCache;
+import core.trace.TraceFiles;
+import core.trace.TraceReader;
 import core.utils.AddressSplit;
 import core.utils.Calculator;
+import core.utils.Sampler;
 import core.utils.Statistics;
-import data.Block;
 import data.Policy;
-import data.Set;
+import data.replacement.NextUseIndex;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.SplittableRandom;
 
 public class CPU
 {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
     private ArrayList<File> traces = new ArrayList<>();
     private Cache cache;
     private PhysicalMemory physicalMemory;
     private TranslationLookasideBuffer tlb;
     private Policy replacement;
+    private DecodeMode decodeMode = DecodeMode.Sequential;
+    private TraceCache traceCache;
+    private int reportInterval;
+    private Sampler sampler;
+    private long skipInstructions;
+    private long maxInstructions;
+    private long seed;
+    private int batchSize = DEFAULT_BATCH_SIZE;
     private Statistics statistics;
+    private PrefetchStage prefetchStage;
 
     {
         statistics = new Statistics();
@@ -46,41 +60,17 @@ public class CPU
         {
             sb.append(String.format("Trace file: %s\n", trace.getName()));
 
-            try (BufferedReader br = new BufferedReader(new FileReader(trace)))
+            try (TraceReader reader = TraceFiles.open(trace))
             {
-                String line;
                 int addressCounter = 20;
+                int kind;
 
-                while (Objects.nonNull(line = br.readLine()) && addressCounter > 0)
+                while ((kind = reader.next()) != TraceReader.END && addressCounter > 0)
                 {
-                    if (line.isBlank()) continue;
-
-                    String[] elements = Arrays.stream(line.split(" ")).filter(str -> !str.isBlank()).toArray(String[]::new);
-
-                    int bytes = 4;
+                    if (kind == TraceReader.BOUNDARY) continue;
 
-                    if (Calculator.hashString(elements[0]) == Calculator.hashString("EIP"))
-                    {
-                        bytes = Integer.parseInt(
-                                elements[1].substring(
-                                        1, elements[1].indexOf(")")
-                                ));
-                        sb.append(elements[2]).append(": (").append(String.format("%02d", bytes)).append(")\n");
-                        addressCounter--;
-                    }
-                    else
-                    {
-                        if (Long.parseLong(elements[1], 16) != 0)
-                        {
-                            sb.append(elements[1]).append(": (").append(String.format("%02d", bytes)).append(")\n");
-                            addressCounter--;
-                        }
-                        if (Long.parseLong(elements[4], 16) != 0)
-                        {
-                            sb.append(elements[4]).append(": (").append(String.format("%02d", bytes)).append(")\n");
-                            addressCounter--;
-                        }
-                    }
+                    sb.append(Calculator.toHexString(reader.getAddress())).append(": (").append(String.format("%02d", reader.getLength())).append(")\n");
+                    addressCounter--;
                 }
 
                 sb.append("\n");
@@ -109,9 +99,17 @@ public class CPU
     {
         StringBuilder sb = new StringBuilder();
 
-        for (File trace : traces) readTraceFile(trace);
+        try(NextUseIndex nextUses = (replacement == Policy.OPT) ? recordNextUses() : null)
+        {
+            if(nextUses != null) cache.setNextUses(nextUses);
+            for (File trace : traces) readTraceFile(trace);
+        }
+        catch (IOException IOe)
+        {
+            System.err.println("WARNING::Could not delete the next-use index: " + IOe.getMessage());
+        }
 
-        for(Set s : cache.getSets()) for(Block b : s.getBlocks()) if(!b.isValid()) getStatistics().incUnusedBlocks();
+        getStatistics().addUnusedBlocks(cache.getInvalidBlocks());
 
         double unusedKB = (getStatistics().getUnusedBlocks() * getCache().getBlockSize()) / 1024d;
 
@@ -123,6 +121,17 @@ public class CPU
                 String.format("%.2f", (unusedKB / (getCache().getImplementationSizeKB())) * (cache.getImplementationSizeKB() * 0.15))));
 
         sb.append(String.format("Unused Cache Blocks:           %s / %s\n", getStatistics().getUnusedBlocks(), getCache().getNumBlocks()));
+        if(cache.isWayPrediction() && cache.getLookupHits() > 0)
+        {
+            sb.append(String.format("Way Prediction Accuracy:       %.4f%% (%s / %s hits)\n",
+                    100d * cache.getPredictedHits() / cache.getLookupHits(), cache.getPredictedHits(), cache.getLookupHits()));
+        }
+        if(prefetchStage != null) sb.append(String.format("Prefetcher:                    %s\n", prefetchStage));
+        if(replacement == Policy.Random) sb.append(String.format("Random Seed:                   %s\n", seed));
+        sb.append(String.format("Resident Physical Pages:       %s (%s KB)\n", physicalMemory.getResidentPages(),
+                (long) physicalMemory.getResidentPages() * physicalMemory.getPageSize() / 1024));
+
+        if(sampler != null) sb.append("\n").append(sampler);
 
         return sb.toString();
     }
@@ -134,67 +143,205 @@ public class CPU
      */
     public void readTraceFile(File trace)
     {
-        try(BufferedReader br = new BufferedReader(new FileReader(trace)))
+        try(TraceReader reader = openTrace(trace))
+        {
+            simulate(reader);
+        }
+        catch (IOException IOe)
+        {
+            System.err.println("Could not read the trace file \"" + trace.getName() + "\"");
+            System.exit(0);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            System.exit(0);
+        }
+    }
+
+
+    /**
+     * Opens a reader over the records of a trace to simulate, through the trace cache when there is one.
+     * @param trace the trace file
+     * @return the reader over the trace
+     * @throws IOException if the trace could not be opened
+     */
+    private TraceReader openTrace(File trace) throws IOException
+    {
+        //The trace cache only records whole traces
+        boolean ranged = skipInstructions > 0 || maxInstructions > 0;
+
+        return (traceCache != null && !ranged) ? traceCache.open(trace, decodeMode) : TraceFiles.open(trace, decodeMode, skipInstructions, maxInstructions);
+    }
+
+
+    /**
+     * Reads every trace once ahead of the simulation to record the blocks the cache will access, and the distance to
+     * the next use of each access for the optimal replacement policy.
+     * @return the next-use index
+     */
+    private NextUseIndex recordNextUses()
+    {
+        try(NextUseIndex.Builder builder = new NextUseIndex.Builder())
         {
-            String line = "sample";
+            int offsetBits = cache.getNumBlockOffsetBits();
 
-            while(Objects.nonNull(line = br.readLine()))
+            for (File trace : traces)
             {
-                if(line.isBlank())
+                try(TraceReader reader = openTrace(trace))
                 {
-                    getStatistics().incInstructions();
-                    continue;
+                    int kind;
+                    while((kind = reader.next()) != TraceReader.END)
+                    {
+                        if(kind == TraceReader.FETCH || kind == TraceReader.READ || kind == TraceReader.WRITE) builder.add(reader.getAddress() >>> offsetBits);
+                    }
                 }
+            }
 
-                String[] elements = Arrays.stream(line.split(" ")).filter(str -> !str.isBlank()).toArray(String[]::new);
+            return builder.build();
+        }
+        catch (IOException IOe)
+        {
+            System.err.println("Could not record the accesses of the traces: " + IOe.getMessage());
+            System.exit(0);
+            return null;
+        }
+    }
 
-                int bytes = 4;
-                boolean hit = false;
 
-                if(Calculator.hashString(elements[0]) == Calculator.hashString("EIP"))
-                {
-                    int address = (int) Long.parseLong(elements[2], 16);
+    /**
+     * Performs cache operations for every record of a trace.
+     * @param reader the reader over the trace
+     * @throws IOException if the trace could not be read
+     */
+    public void simulate(TraceReader reader) throws IOException
+    {
+        //Interval reports and sampling act between two instructions, batches only between two batches
+        if(batchSize > 0 && reportInterval == 0 && sampler == null)
+        {
+            simulateBatches(reader);
+            return;
+        }
 
-                    bytes = Integer.parseInt(
-                            elements[1].substring(
-                                    1, elements[1].indexOf(")")
-                            ));
+        int kind;
+        Statistics intervalStart = new Statistics(getStatistics());
+        boolean detailed = (sampler == null) || sampler.start(getStatistics());
+        cache.setFunctionalWarming(!detailed);
 
-                    hit = cache.read(address);
+        while((kind = reader.next()) != TraceReader.END)
+        {
+            //Functional warming between sampled windows: cache state only, without the prefetcher
+            if(!detailed)
+            {
+                switch(kind)
+                {
+                    case TraceReader.FETCH, TraceReader.READ -> cache.access(reader.getAddress(), false, 0);
+                    case TraceReader.WRITE -> cache.access(reader.getAddress(), true, 0);
+                    case TraceReader.BOUNDARY -> {
+                        detailed = sampler.nextInstruction(getStatistics());
+                        cache.setFunctionalWarming(!detailed);
+                    }
+                }
+                continue;
+            }
 
-                    getStatistics().incCycles(this, hit, bytes);
+            switch(kind)
+            {
+                case TraceReader.FETCH -> {
+                    boolean hit = access(kind, reader.getAddress(), 0);
+                    getStatistics().incCycles(this, hit, reader.getLength());
                     getStatistics().incCycle2();
                 }
-                else
-                {
-                    int dstAddr = Calculator.hexToInteger(elements[1]);
-                    int srcAddr = Calculator.hexToInteger(elements[4]);
+                case TraceReader.READ -> {
+                    boolean hit = access(kind, reader.getAddress(), 0);
+                    getStatistics().incCycles(this, hit, reader.getLength());
+                }
+                case TraceReader.WRITE -> {
+                    access(kind, reader.getAddress(), reader.getData());
+                    getStatistics().incCycles(this, false, reader.getLength());
+                }
+                case TraceReader.BOUNDARY -> {
+                    getStatistics().incInstructions();
 
-                    if(dstAddr != 0)
+                    if(reportInterval > 0 && getStatistics().getInstructions() % reportInterval == 0)
                     {
-                        if(!elements[3].equals("--------")) cache.write(dstAddr, Calculator.hexToInteger(elements[3]));
-                        else hit = cache.read(dstAddr);
-
-                        getStatistics().incCycles(this, hit, bytes);
+                        System.out.print(getStatistics().intervalString(intervalStart));
+                        intervalStart = new Statistics(getStatistics());
                     }
 
-                    if(srcAddr != 0)
+                    if(sampler != null)
                     {
-                        hit = cache.read(srcAddr);
-                        getStatistics().incCycles(this, hit, bytes);
+                        detailed = sampler.nextInstruction(getStatistics());
+                        cache.setFunctionalWarming(!detailed);
                     }
                 }
             }
         }
-        catch (IOException IOe)
-        {
-            System.err.println("Could not read the trace file \"" + trace.getName() + "\"");
-            System.exit(0);
-        }
-        catch (Exception e)
+
+        if(sampler != null) sampler.finish(getStatistics());
+        cache.setFunctionalWarming(false);
+    }
+
+
+    /**
+     * Accesses the cache for a record, through the prefetcher if there is one.
+     * @param kind the kind of the record: fetches and reads read, writes write
+     * @param address the address to access
+     * @param data the data to write, ignored on reads
+     * @return true on a hit, false on a miss
+     */
+    private boolean access(int kind, int address, int data)
+    {
+        if(prefetchStage != null) return prefetchStage.access(kind, address, data);
+        return cache.access(address, kind == TraceReader.WRITE, data);
+    }
+
+
+    /**
+     * Performs cache operations for every record of a trace, a batch of records at a time. The statistics are updated
+     * once per batch, with the same results as {@link #simulate(TraceReader)} one record at a time.
+     * @param reader the reader over the trace
+     * @throws IOException if the trace could not be read
+     */
+    private void simulateBatches(TraceReader reader) throws IOException
+    {
+        TraceBatch batch = new TraceBatch(batchSize);
+        boolean[] hits = new boolean[batchSize];
+
+        while(batch.fill(reader) > 0)
         {
-            e.printStackTrace();
-            System.exit(0);
+            int count = batch.getSize();
+            byte[] kinds = batch.getKinds();
+            byte[] lengths = batch.getLengths();
+            if(prefetchStage != null) prefetchStage.accessBatch(batch.getAddresses(), kinds, batch.getData(), count, hits);
+            else cache.accessBatch(batch.getAddresses(), kinds, batch.getData(), count, hits);
+
+            //Writes are always accounted as misses
+            int misses = 0, bytes = 0, fetches = 0, instructions = 0;
+            for(int i = 0; i < count; i++)
+            {
+                switch(kinds[i])
+                {
+                    case TraceReader.FETCH -> {
+                        fetches++;
+                        bytes += lengths[i];
+                        if(!hits[i]) misses++;
+                    }
+                    case TraceReader.READ -> {
+                        bytes += lengths[i];
+                        if(!hits[i]) misses++;
+                    }
+                    case TraceReader.WRITE -> {
+                        bytes += lengths[i];
+                        misses++;
+                    }
+                    case TraceReader.BOUNDARY -> instructions++;
+                }
+            }
+
+            getStatistics().addCycles(this, misses, bytes, fetches);
+            getStatistics().addInstructions(instructions);
+            if(batch.isLast()) break;
         }
     }
 
@@ -270,9 +417,113 @@ public class CPU
         return replacement;
     }
 
+    /**
+     * Sets the replacement policy, of the cache as well once it is set.
+     * @param replacement the replacement policy
+     */
     public void setReplacementPolicy(Policy replacement)
     {
         this.replacement = replacement;
+        if(cache != null) cache.setReplacementPolicy(replacement);
+    }
+
+    public DecodeMode getDecodeMode()
+    {
+        return decodeMode;
+    }
+
+    public void setDecodeMode(DecodeMode decodeMode)
+    {
+        this.decodeMode = decodeMode;
+    }
+
+    public int getReportInterval()
+    {
+        return reportInterval;
+    }
+
+    public void setReportInterval(int reportInterval)
+    {
+        this.reportInterval = reportInterval;
+    }
+
+    public long getSkipInstructions()
+    {
+        return skipInstructions;
+    }
+
+    public void setSkipInstructions(long skipInstructions)
+    {
+        this.skipInstructions = skipInstructions;
+    }
+
+    public long getMaxInstructions()
+    {
+        return maxInstructions;
+    }
+
+    public void setMaxInstructions(long maxInstructions)
+    {
+        this.maxInstructions = maxInstructions;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Seeds every random choice of the simulation, so runs with the same seed give the same results. The cache gets
+     * its own split of the seed's generator, and memory contents are hashed from the seed and their address, so
+     * components or workers never share a generator.
+     * @param seed the seed
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        cache.setRandom(random.split());
+        physicalMemory.setSeed(random.nextLong());
+    }
+
+    public PrefetchStage getPrefetchStage()
+    {
+        return prefetchStage;
+    }
+
+    public void setPrefetchStage(PrefetchStage prefetchStage)
+    {
+        this.prefetchStage = prefetchStage;
+    }
+
+    public Sampler getSampler()
+    {
+        return sampler;
+    }
+
+    public void setSampler(Sampler sampler)
+    {
+        this.sampler = sampler;
+    }
+
+    public TraceCache getTraceCache()
+    {
+        return traceCache;
+    }
+
+    public void setTraceCache(TraceCache traceCache)
+    {
+        this.traceCache = traceCache;
     }
 
     public Statistics getStatistics()
@@ -1,12 +1,19 @@
 package core;
 
-import core.utils.AddressSplit;
+import core.trace.TraceReader;
 import core.utils.Calculator;
-import data.Block;
+import data.CacheStore;
+import data.Engine;
+import data.FlatCacheStore;
+import data.ObjectCacheStore;
 import data.Policy;
 import data.Set;
+import data.VictimCache;
+import data.replacement.BeladyReplacement;
+import data.replacement.NextUseIndex;
+import data.replacement.ReplacementState;
 
-import java.util.Objects;
+import java.util.SplittableRandom;
 
 public class Cache
 {
@@ -22,16 +29,53 @@ public class Cache
     private final int instructionPerTimeSlice;
 
     //Cache memory
-    Set[] sets;
+    private final Engine engine;
+    private final CacheStore store;
+
+    //Replacement: the policy's state for every set, rebuilt when the policy or the random source changes
+    private Policy replacementPolicy = Policy.RoundRobin;
+    private SplittableRandom random = new SplittableRandom();
+    private ReplacementState replacement;
+    private NextUseIndex nextUses;
+
+    //Hit/miss studies: no data in the cache and no traffic to the physical memory
+    private final boolean tagOnly;
+
+    //Lines evicted by misses, checked before going to memory, or null
+    private VictimCache victimCache;
+
+    //Prefetching: lines holding prefetched blocks not used yet, and when they were prefetched, allocated by the first
+    //prefetch
+    private long[] prefetched;
+    private long[] prefetchIssued;
+    private long demandAccesses;
+    private boolean prefetchHit;
+    private final int prefetchLatency;
+
+    //Lookups check the most recently used way of the set first
+    private boolean wayPrediction = true;
 
     //CPU
     CPU referenceCPU;
 
+    //Sampling: update only tags, state bits and replacement state, without counting the accesses or moving data
+    private boolean functionalWarming;
+    private boolean modelsData;
+
     //Bitties
     private final int tagBits;
     private final int indexBits;
     private final int blockOffsetBits;
 
+    //Address decoding, precomputed from the bitties
+    private final int tagShift;
+    private final int indexMask;
+    private final int offsetMask;
+
+    //Block transfers between the cache and the physical memory, reused by every miss
+    private final int[] fillBuffer;
+    private final int[] evictBuffer;
+
 
     /**
      * Constructs a Cache object with the specified CPU, size, block size, associativity, and instructions per time slice.
@@ -42,6 +86,22 @@ public class Cache
      * @param instructionPerTimeSlice the instructions per time slice
      */
     public Cache(CPU cpu, int size, int blockSize, int associativity, int instructionPerTimeSlice)
+    {
+        this(cpu, size, blockSize, associativity, instructionPerTimeSlice, Engine.Object, false);
+    }
+
+    /**
+     * Constructs a Cache object with the specified CPU, size, block size, associativity, instructions per time slice,
+     * storage engine and data modeling.
+     * @param cpu the CPU
+     * @param size the size
+     * @param blockSize the block size
+     * @param associativity the associativity
+     * @param instructionPerTimeSlice the instructions per time slice
+     * @param engine the storage engine
+     * @param tagOnly true to track only tags and state, without data or physical memory traffic
+     */
+    public Cache(CPU cpu, int size, int blockSize, int associativity, int instructionPerTimeSlice, Engine engine, boolean tagOnly)
     {
         referenceCPU = cpu;
         long sizeBytes = Calculator.getBytes(size + "KB");
@@ -52,7 +112,6 @@ public class Cache
 
         numBlocks = (int) sizeBytes / blockSize;
         numSets = numBlocks / associativity;
-        sets = new Set[numSets];
 
         //Block offset bits = log_2(blockSize)
         //Index bits = log_2(size) - log_2(blockSize * associativity) -> Alternative: log_2(Cache Size / Block Size / Associativity)
@@ -61,82 +120,328 @@ public class Cache
         indexBits = Calculator.getBasePower(sizeBytes, 2) - Calculator.getBasePower(blockSize * associativity, 2);
         tagBits = 32 - indexBits - blockOffsetBits;
 
+        tagShift = indexBits + blockOffsetBits;
+        indexMask = (1 << indexBits) - 1;
+        offsetMask = (1 << blockOffsetBits) - 1;
+        prefetchLatency = 4 * (int) Math.ceil(blockSize / 4d);
+        fillBuffer = tagOnly ? null : new int[blockSize];
+        evictBuffer = tagOnly ? null : new int[blockSize];
+
         implementationSize = (long) (sizeBytes + Math.pow(2, tagBits) + numBlocks);
         implementationSizeKB = implementationSize /1024d;
 
         overHeadSize = (int) (implementationSize - sizeBytes);
 
-        for(int i = 0; i < sets.length; i++) sets[i] = new Set(associativity, numBlocks);
+        this.engine = engine;
+        this.tagOnly = tagOnly;
+        modelsData = !tagOnly;
+        store = (engine == Engine.Flat) ? new FlatCacheStore(numSets, associativity, blockSize, tagOnly) : new ObjectCacheStore(numSets, associativity, blockSize, tagOnly);
+        resetReplacement();
     }
 
 
     /**
-     * Checks if the address is not in memory.
-     * @param address the address to check
-     * @return true if the address is not in memory, false otherwise
+     * Inserts the address into the cache. With a victim cache, the evicted line moves there and only the line that
+     * leaves the victim cache is written back.
+     * @param addr the address to insert
+     * @param index the set index of the address
+     * @param tag the tag of the address
+     * @param prefetch true if the block is brought in by a prefetch rather than a demand miss
+     * @return the number of misses to count, one more when a dirty block was written back
      */
-    private boolean isAddressNotInMemory(AddressSplit address)
+    private int insertAddress(int addr, int index, int tag, boolean prefetch)
     {
-        return Objects.isNull(sets[address.getIndex()].getValidBlock(address));
-    }
+        int misses = 1;
+        PhysicalMemory memory = getCPU().getPhysicalMemory();
+        int way = chooseWay(index);
+
+        if(victimCache != null)
+        {
+            if(store.isValid(index, way))
+            {
+                int entry = victimCache.victim();
+                if(victimCache.isDirty(entry))
+                {
+                    if(modelsData)
+                    {
+                        victimCache.copyData(entry, evictBuffer);
+                        memory.writeBlock(victimCache.getBlock(entry) << blockOffsetBits, evictBuffer);
+                    }
+                    misses++;
+                }
+
+                if(modelsData) store.copyData(index, way, evictBuffer);
+                victimCache.put(entry, (store.getTag(index, way) << indexBits) | index, store.isDirty(index, way), modelsData ? evictBuffer : null);
+            }
+        }
+        else if(store.isDirty(index, way))
+        {
+            if(modelsData)
+            {
+                int removedAddr = (store.getTag(index, way) * numSets + index) * blockSize;
+                store.copyData(index, way, evictBuffer);
+                memory.writeBlock(removedAddr, evictBuffer);
+            }
+            misses++;
+        }
 
+        //Record new data block
+        if(modelsData) memory.readBlock(addr & ~offsetMask, fillBuffer);
+        store.fill(index, way, tag, modelsData ? fillBuffer : null);
+        if(prefetch) replacement.prefetch(index, way);
+        else replacement.fill(index, way);
+        if(prefetched != null) markPrefetched(index * associativity + way, prefetch);
+        return misses;
+    }
 
     /**
-     * Inserts the address into the cache.
-     * @param address the address to insert
+     * Moves the block of an address from the victim cache back into the cache, swapping it with the line the cache
+     * evicts, without any physical memory traffic.
+     * @param addr the address missing in the cache
+     * @param index the set index of the address
+     * @param tag the tag of the address
+     * @return the way now holding the block, or -1 if the victim cache does not hold it either
      */
-    private void insertAddress(AddressSplit address)
+    private int swapIn(int addr, int index, int tag)
     {
-        Set set = sets[address.getIndex()];
-        Block removable;
+        int entry = victimCache.find(addr >>> blockOffsetBits);
+        if(entry < 0) return -1;
 
-        if(getCPU().getReplacementPolicy() == Policy.RoundRobin) removable = set.getFirstInQueue();
-        else removable = set.getRandomBlock();
+        int way = chooseWay(index);
+        boolean dirty = victimCache.isDirty(entry);
+        if(modelsData) victimCache.copyData(entry, fillBuffer);
 
-        if(Objects.isNull(removable))
+        if(store.isValid(index, way))
+        {
+            if(modelsData) store.copyData(index, way, evictBuffer);
+            victimCache.put(entry, (store.getTag(index, way) << indexBits) | index, store.isDirty(index, way), modelsData ? evictBuffer : null);
+        }
+        else victimCache.remove(entry);
+
+        store.fill(index, way, tag, modelsData ? fillBuffer : null);
+        if(dirty) store.setDirty(index, way);
+        replacement.swapIn(index, way);
+        if(prefetched != null) markPrefetched(index * associativity + way, false);
+        return way;
+    }
+
+    /**
+     * Chooses the way of a set receiving a new block, an invalid way if there is one.
+     * @param index the set index
+     * @return the way to replace
+     */
+    private int chooseWay(int index)
+    {
+        int way = store.findInvalid(index);
+        if(way < 0) way = replacement.victim(index);
+
+        if(way < 0)
         {
             System.err.println("ERROR::Unaccounted error - Block should not be null");
             System.exit(0);
         }
 
-        if(removable.isDirty())
+        return way;
+    }
+
+
+    /**
+     * Reads or writes the cache at the specified address, inserting the block on a miss. Nothing is allocated once
+     * every block of the cache has been filled.
+     * @param addr the address to access
+     * @param isWrite true to write the data, false to read
+     * @param data the data to write, ignored on reads
+     * @return true on a hit, false on a miss
+     */
+    public boolean access(int addr, boolean isWrite, int data)
+    {
+        demandAccesses++;
+        prefetchHit = false;
+        int tag = addr >>> tagShift;
+        int index = (addr >>> blockOffsetBits) & indexMask;
+        int way = store.lookup(index, tag);
+        boolean victimHit = false;
+
+        if(way < 0 && victimCache != null)
         {
-            int[] removedData = removable.getData();
-            int removedAddr = (removable.getTag() * sets.length + address.getIndex()) * blockSize;
-            AddressSplit removedAddress = new AddressSplit(removedAddr, indexBits, blockOffsetBits);
-            for(int i = 0; i < blockSize; i++) getCPU().getPhysicalMemory().write(new AddressSplit(removedAddress, i), removedData[i]);
-            getCPU().getStatistics().incCompulsoryMisses();
+            way = swapIn(addr, index, tag);
+            victimHit = way >= 0;
         }
 
-        //Record new data block
-        int[] data = new int[blockSize];
-        for(int i = 0; i < blockSize; i++) data[i] = getCPU().getPhysicalMemory().read(new AddressSplit(address, i));
-        getCPU().getStatistics().incCompulsoryMisses();
-        removable.fillBlock(address, data);
+        if(way < 0)
+        {
+            int misses = insertAddress(addr, index, tag, false);
+            if(!functionalWarming) getCPU().getStatistics().addCompulsoryMisses(misses);
+            return false;
+        }
+
+        if(!functionalWarming)
+        {
+            getCPU().getStatistics().incHits();
+            if(victimHit) getCPU().getStatistics().incVictimHits();
+        }
+        if(!victimHit) replacement.hit(index, way);
+        if(prefetched != null) prefetchHit = usePrefetched(index * associativity + way);
+        if(functionalWarming)
+        {
+            if(isWrite) store.setDirty(index, way);
+        }
+        else if(isWrite) store.write(index, way, addr & offsetMask, data);
+        else store.read(index, way, addr & offsetMask);
+        return true;
     }
 
+    /**
+     * Performs a batch of accesses in order, with the same effect as calling {@link #access(int, boolean, int)} for
+     * each of them, but counts the hits and misses in the statistics once for the whole batch.
+     * @param addresses the addresses of the records
+     * @param kinds the kinds of the records, as in {@link core.trace.TraceReader}: fetches and reads read, writes
+     *              write, and records of any other kind are skipped
+     * @param data the data of the records, used by writes
+     * @param count the number of records
+     * @param hits receives whether each access hit, or null
+     * @return the number of hits
+     */
+    public int accessBatch(int[] addresses, byte[] kinds, int[] data, int count, boolean[] hits)
+    {
+        int hitCount = 0;
+        int victimHits = 0;
+        int misses = 0;
+
+        for(int i = 0; i < count; i++)
+        {
+            int kind = kinds[i];
+            if(kind != TraceReader.FETCH && kind != TraceReader.READ && kind != TraceReader.WRITE) continue;
+
+            demandAccesses++;
+            int addr = addresses[i];
+            int tag = addr >>> tagShift;
+            int index = (addr >>> blockOffsetBits) & indexMask;
+            int way = store.lookup(index, tag);
+            boolean victimHit = false;
+
+            if(way < 0 && victimCache != null)
+            {
+                way = swapIn(addr, index, tag);
+                victimHit = way >= 0;
+            }
+
+            boolean hit = way >= 0;
+
+            if(!hit) misses += insertAddress(addr, index, tag, false);
+            else
+            {
+                hitCount++;
+                if(victimHit) victimHits++;
+                else replacement.hit(index, way);
+                if(prefetched != null) usePrefetched(index * associativity + way);
+                if(functionalWarming)
+                {
+                    if(kind == TraceReader.WRITE) store.setDirty(index, way);
+                }
+                else if(kind == TraceReader.WRITE) store.write(index, way, addr & offsetMask, data[i]);
+                else store.read(index, way, addr & offsetMask);
+            }
+
+            if(hits != null) hits[i] = hit;
+        }
+
+        if(!functionalWarming)
+        {
+            getCPU().getStatistics().addHits(hitCount);
+            getCPU().getStatistics().addVictimHits(victimHits);
+            getCPU().getStatistics().addCompulsoryMisses(misses);
+        }
+
+        return hitCount;
+    }
 
     /**
-     * Reads data from the cache at the specified address.
-     * @param addr the address to read from
-     * @return true if the read was successful, false otherwise
+     * Brings the block of an address into the cache ahead of its demand access, unless the cache or its victim cache
+     * already holds it. The fill is counted apart from demand misses, and the block is tracked until it is used or
+     * evicted for the accuracy, coverage and timeliness of the prefetcher.
+     * @param addr the address to prefetch
+     * @return true if the block was filled, false if it was already there
      */
-    protected boolean read(int addr)
+    public boolean prefetch(int addr)
     {
-        AddressSplit address = new AddressSplit(addr, indexBits, blockOffsetBits);
+        int tag = addr >>> tagShift;
+        int index = (addr >>> blockOffsetBits) & indexMask;
+        if(store.peek(index, tag) >= 0) return false;
+        if(victimCache != null && victimCache.find(addr >>> blockOffsetBits) >= 0) return false;
 
-        if(isAddressNotInMemory(address))
+        if(prefetched == null)
         {
-            insertAddress(address);
-            return false;
+            prefetched = new long[(numBlocks + 63) >>> 6];
+            prefetchIssued = new long[numBlocks];
         }
 
-        Set set = sets[address.getIndex()];
-        getCPU().getStatistics().incHits();
-        int data = set.readByte(address);
+        int misses = insertAddress(addr, index, tag, true);
+        if(!functionalWarming)
+        {
+            getCPU().getStatistics().incPrefetchFills();
+            getCPU().getStatistics().addPrefetchWritebacks(misses - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Records the fill of a line, accounting for a prefetched block it evicts before any use.
+     * @param line the line, as set index * associativity + way
+     * @param prefetch true if the line is filled by a prefetch
+     */
+    private void markPrefetched(int line, boolean prefetch)
+    {
+        long bit = 1L << line;
+        if((prefetched[line >>> 6] & bit) != 0 && !functionalWarming) getCPU().getStatistics().incUnusedPrefetches();
+
+        if(prefetch)
+        {
+            prefetched[line >>> 6] |= bit;
+            prefetchIssued[line] = demandAccesses;
+        }
+        else prefetched[line >>> 6] &= ~bit;
+    }
+
+    /**
+     * Records a demand hit on a line, counting the first use of a prefetched block. A block used within a miss
+     * penalty of its prefetch, at one access per cycle, would still have been in flight, so its prefetch was late.
+     * @param line the line, as set index * associativity + way
+     * @return true if the line held a prefetched block not used before
+     */
+    private boolean usePrefetched(int line)
+    {
+        long bit = 1L << line;
+        if((prefetched[line >>> 6] & bit) == 0) return false;
+
+        prefetched[line >>> 6] &= ~bit;
+        if(!functionalWarming)
+        {
+            boolean late = demandAccesses - prefetchIssued[line] < prefetchLatency;
+            getCPU().getStatistics().incUsefulPrefetches(late);
+        }
         return true;
     }
 
+    /**
+     * Checks if the last access was the first use of a prefetched block.
+     * @return true if the last access hit a block brought in by a prefetch
+     */
+    public boolean isPrefetchHit()
+    {
+        return prefetchHit;
+    }
+
+    /**
+     * Reads data from the cache at the specified address.
+     * @param addr the address to read from
+     * @return true if the read was successful, false otherwise
+     */
+    protected boolean read(int addr)
+    {
+        return access(addr, false, 0);
+    }
+
     /**
      * Writes data to the cache at the specified address.
      * @param addr the address to write to
@@ -145,18 +450,20 @@ public class Cache
      */
     protected boolean write(int addr, int data)
     {
-        AddressSplit address = new AddressSplit(addr, indexBits, blockOffsetBits);
-
-        if(isAddressNotInMemory(address))
-        {
-            insertAddress(address);
-            return false;
-        }
+        return access(addr, true, data);
+    }
 
-        Set set = sets[address.getIndex()];
-        getCPU().getStatistics().incHits();
-        set.writeByte(address, data);
-        return true;
+    /**
+     * Sets whether accesses only update the cache state, without being counted in the statistics. While warming, the
+     * cache behaves as in tag-only mode: tags, state bits and replacement state change, but no data is copied and the
+     * physical memory is neither read nor written, so the data written back during warming is lost.
+     * @param functionalWarming true to stop counting accesses, false to count them again
+     */
+    public void setFunctionalWarming(boolean functionalWarming)
+    {
+        this.functionalWarming = functionalWarming;
+        modelsData = !tagOnly && !functionalWarming;
+        store.setCounting(!functionalWarming);
     }
 
     /**
@@ -251,11 +558,144 @@ public class Cache
 
     /**
      * Returns the sets.
-     * @return the sets
+     * @return the sets, or null if the cache does not use the object engine
      */
     public Set[] getSets()
     {
-        return sets;
+        return (store instanceof ObjectCacheStore objects) ? objects.getSets() : null;
+    }
+
+    /**
+     * Returns the storage engine.
+     * @return the storage engine
+     */
+    public Engine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * Sets the replacement policy, starting from a fresh replacement state.
+     * @param replacementPolicy the replacement policy
+     */
+    public void setReplacementPolicy(Policy replacementPolicy)
+    {
+        this.replacementPolicy = replacementPolicy;
+        resetReplacement();
+    }
+
+    public Policy getReplacementPolicy()
+    {
+        return replacementPolicy;
+    }
+
+    /**
+     * Returns the replacement state of the sets.
+     * @return the replacement state
+     */
+    public ReplacementState getReplacement()
+    {
+        return replacement;
+    }
+
+    /**
+     * Sets the random source of the random replacement policy, starting from a fresh replacement state.
+     * @param random the random source, owned by the cache from now on
+     */
+    public void setRandom(SplittableRandom random)
+    {
+        this.random = random;
+        resetReplacement();
+    }
+
+    /**
+     * Sets the next-use distances of the accesses to come, for the optimal replacement policy, starting from a fresh
+     * replacement state.
+     * @param nextUses the next-use index, read from the next access
+     */
+    public void setNextUses(NextUseIndex nextUses)
+    {
+        this.nextUses = nextUses;
+        resetReplacement();
+    }
+
+    /**
+     * Creates the replacement state of the current policy. The optimal policy needs the next uses, and uses LRU until
+     * they are set.
+     */
+    private void resetReplacement()
+    {
+        if(replacementPolicy == Policy.OPT && nextUses != null) replacement = new BeladyReplacement(numSets, associativity, nextUses);
+        else replacement = ReplacementState.create(replacementPolicy == Policy.OPT ? Policy.LRU : replacementPolicy, numSets, associativity, random);
+    }
+
+    /**
+     * Sets whether lookups check the most recently used way of a set first.
+     * @param wayPrediction true to predict ways, false to always search from way 0
+     */
+    public void setWayPrediction(boolean wayPrediction)
+    {
+        this.wayPrediction = wayPrediction;
+        store.setWayPrediction(wayPrediction);
+    }
+
+    public boolean isWayPrediction()
+    {
+        return wayPrediction;
+    }
+
+    /**
+     * Returns the number of lookups that found their tag.
+     * @return the number of hitting lookups
+     */
+    public long getLookupHits()
+    {
+        return store.getLookupHits();
+    }
+
+    /**
+     * Returns the number of lookups that found their tag in the predicted way.
+     * @return the number of correct way predictions
+     */
+    public long getPredictedHits()
+    {
+        return store.getPredictedHits();
+    }
+
+    /**
+     * Attaches a victim cache, or detaches it.
+     * @param entries the number of lines of the victim cache, 0 for none
+     */
+    public void setVictimCache(int entries)
+    {
+        victimCache = (entries > 0) ? new VictimCache(entries, blockSize, tagOnly) : null;
+    }
+
+    /**
+     * Returns the victim cache.
+     * @return the victim cache, or null if there is none
+     */
+    public VictimCache getVictimCache()
+    {
+        return victimCache;
+    }
+
+    /**
+     * Checks if the cache tracks only tags and state.
+     * @return true if no data is modeled, false otherwise
+     */
+    public boolean isTagOnly()
+    {
+        return tagOnly;
+    }
+
+    /**
+     * Returns the number of blocks that were never filled.
+     * @return the number of invalid blocks
+     */
+    public int getInvalidBlocks()
+    {
+        return store.countInvalid();
     }
 
     /**
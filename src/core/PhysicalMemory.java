@@ -3,11 +3,18 @@ package core;
 import core.utils.AddressSplit;
 import core.utils.Calculator;
 
-import java.util.HashMap;
-import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class PhysicalMemory
 {
+    //Memory is kept in lazily allocated 4 KB pages behind a two-level directory: 10 bits of directory, 10 bits of
+    //page table and 12 bits of offset cover the whole 32-bit address space
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int TABLE_BITS = 10;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+
     private long size;
     private int numPages;
     private int numSysPages;
@@ -16,7 +23,9 @@ public class PhysicalMemory
     private int percentMemoryUsed;
     private int percentMemoryUnused;
 
-    private HashMap<Integer, Integer> data;
+    private final byte[][][] directory;
+    private int residentPages;
+    private long seed = ThreadLocalRandom.current().nextLong();
 
     /**
      * Constructs a PhysicalMemory object with the specified size and unused memory.
@@ -26,9 +35,9 @@ public class PhysicalMemory
     public PhysicalMemory(long physicalMemorySize, int unusedPhysicalMemory)
     {
         this.size = physicalMemorySize;
-        data = new HashMap<>();
+        directory = new byte[1 << (32 - PAGE_BITS - TABLE_BITS)][][];
 
-        numPages = (int) (size / 4096);
+        numPages = (int) (size / PAGE_SIZE);
         pageTableBits = Calculator.getBasePower(numPages, 2) + 1;
         this.percentMemoryUnused = unusedPhysicalMemory;
         this.percentMemoryUsed = 100 - (unusedPhysicalMemory);
@@ -42,8 +51,35 @@ public class PhysicalMemory
      */
     public int read(AddressSplit address)
     {
-        if(Objects.isNull(data.get(address.getAddress()))) data.put(address.getAddress(), Calculator.getRandomInt(0, 256));
-        return data.get(address.getAddress());
+        return read(address.getAddress());
+    }
+
+    /**
+     * Reads data from the physical memory at the specified address.
+     * @param address the address to read from
+     * @return the data read from the physical memory
+     */
+    public int read(int address)
+    {
+        return page(address)[address & PAGE_MASK] & 0xFF;
+    }
+
+    /**
+     * Reads a block from the physical memory.
+     * @param blockAddress the address of the first byte of the block
+     * @param destination the array receiving the block, as long as the block
+     */
+    public void readBlock(int blockAddress, int[] destination)
+    {
+        for(int done = 0; done < destination.length;)
+        {
+            int address = blockAddress + done;
+            byte[] page = page(address);
+            int offset = address & PAGE_MASK;
+            int count = Math.min(destination.length - done, PAGE_SIZE - offset);
+            for(int i = 0; i < count; i++) destination[done + i] = page[offset + i] & 0xFF;
+            done += count;
+        }
     }
 
     /**
@@ -53,7 +89,90 @@ public class PhysicalMemory
      */
     public void write(AddressSplit address, int data)
     {
-        this.data.put(address.getAddress(), data);
+        write(address.getAddress(), data);
+    }
+
+    /**
+     * Writes data to the physical memory at the specified address.
+     * @param address the address to write to
+     * @param data the data to write
+     */
+    public void write(int address, int data)
+    {
+        page(address)[address & PAGE_MASK] = (byte) data;
+    }
+
+    /**
+     * Writes a block to the physical memory.
+     * @param blockAddress the address of the first byte of the block
+     * @param source the block to write
+     */
+    public void writeBlock(int blockAddress, int[] source)
+    {
+        for(int done = 0; done < source.length;)
+        {
+            int address = blockAddress + done;
+            byte[] page = page(address);
+            int offset = address & PAGE_MASK;
+            int count = Math.min(source.length - done, PAGE_SIZE - offset);
+            for(int i = 0; i < count; i++) page[offset + i] = (byte) source[done + i];
+            done += count;
+        }
+    }
+
+    /**
+     * Returns the page holding an address. Pages are allocated on first use and filled with garbage, as memory that
+     * was never written holds garbage: bytes hashed from the seed and their address, so they do not depend on the
+     * order pages are touched in.
+     * @param address the address
+     * @return the page holding the address
+     */
+    private byte[] page(int address)
+    {
+        byte[][] table = directory[address >>> (PAGE_BITS + TABLE_BITS)];
+        if(table == null) table = directory[address >>> (PAGE_BITS + TABLE_BITS)] = new byte[1 << TABLE_BITS][];
+
+        byte[] page = table[(address >>> PAGE_BITS) & TABLE_MASK];
+        if(page == null)
+        {
+            page = table[(address >>> PAGE_BITS) & TABLE_MASK] = new byte[PAGE_SIZE];
+            long pageAddress = Integer.toUnsignedLong(address & ~PAGE_MASK);
+            for(int i = 0; i < PAGE_SIZE; i += Long.BYTES)
+            {
+                long garbage = Calculator.mix(seed, pageAddress + i);
+                for(int j = 0; j < Long.BYTES; j++) page[i + j] = (byte) (garbage >>> (j * 8));
+            }
+            residentPages++;
+        }
+
+        return page;
+    }
+
+    /**
+     * Sets the seed of the garbage held by memory that was never written. Pages already touched keep their bytes.
+     * @param seed the seed
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of pages the simulation has touched.
+     * @return the number of resident pages
+     */
+    public int getResidentPages()
+    {
+        return residentPages;
+    }
+
+    /**
+     * Returns the size of a page.
+     * @return the size of a page in bytes
+     */
+    public int getPageSize()
+    {
+        return PAGE_SIZE;
     }
 
     public long getSize()
@@ -0,0 +1,34 @@
+package core.prefetch;
+
+/**
+ * Tagged next-line prefetching: a miss, or the first use of a prefetched block, prefetches the blocks following it.
+ */
+public class NextLinePrefetcher implements Prefetcher
+{
+    private final int degree;
+    private final int distance;
+    private final int blockOffsetBits;
+
+    /**
+     * Constructs a NextLinePrefetcher.
+     * @param degree the number of blocks prefetched per trigger
+     * @param distance the distance in blocks of the first prefetched block
+     * @param blockOffsetBits the block offset bits of the cache
+     */
+    public NextLinePrefetcher(int degree, int distance, int blockOffsetBits)
+    {
+        this.degree = degree;
+        this.distance = distance;
+        this.blockOffsetBits = blockOffsetBits;
+    }
+
+    @Override
+    public int observe(int kind, int pc, int address, boolean hit, boolean prefetchHit, int[] candidates)
+    {
+        if(hit && !prefetchHit) return 0;
+
+        int block = address >>> blockOffsetBits;
+        for(int i = 0; i < degree; i++) candidates[i] = (block + distance + i) << blockOffsetBits;
+        return degree;
+    }
+}
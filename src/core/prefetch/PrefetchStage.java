@@ -0,0 +1,90 @@
+package core.prefetch;
+
+import core.Cache;
+import core.trace.TraceReader;
+
+/**
+ * Stage between the CPU and the cache that shows every demand access to a prefetcher and fills the blocks it asks
+ * for. It follows the EIP of the running instruction from the fetch records, for prefetchers indexed by instruction.
+ */
+public class PrefetchStage
+{
+    private final Cache cache;
+    private final Prefetcher prefetcher;
+    private final PrefetcherType type;
+    private final int degree;
+    private final int distance;
+    private final int[] candidates = new int[Prefetcher.MAX_DEGREE];
+    private int pc;
+
+    /**
+     * Constructs a PrefetchStage in front of a cache.
+     * @param cache the cache
+     * @param type the type of prefetcher
+     * @param degree the number of blocks issued per trigger
+     * @param distance how many blocks ahead of the trigger the prefetches start, or run for stream buffers
+     */
+    public PrefetchStage(Cache cache, PrefetcherType type, int degree, int distance)
+    {
+        this.cache = cache;
+        this.type = type;
+        this.degree = degree;
+        this.distance = distance;
+        prefetcher = Prefetcher.create(type, degree, distance, cache.getNumBlockOffsetBits());
+    }
+
+    /**
+     * Performs a demand access, then the prefetches it triggers.
+     * @param kind the kind of the record: fetches and reads read, writes write
+     * @param address the address to access
+     * @param data the data to write, ignored on reads
+     * @return true on a hit, false on a miss
+     */
+    public boolean access(int kind, int address, int data)
+    {
+        if(kind == TraceReader.FETCH) pc = address;
+
+        boolean hit = cache.access(address, kind == TraceReader.WRITE, data);
+        int count = prefetcher.observe(kind, pc, address, hit, cache.isPrefetchHit(), candidates);
+        for(int i = 0; i < count; i++) cache.prefetch(candidates[i]);
+
+        return hit;
+    }
+
+    /**
+     * Performs a batch of accesses in order, each followed by its prefetches, as {@link Cache#accessBatch} does
+     * without prefetching.
+     * @param addresses the addresses of the records
+     * @param kinds the kinds of the records, records that are not accesses are skipped
+     * @param data the data of the records, used by writes
+     * @param count the number of records
+     * @param hits receives whether each access hit, or null
+     * @return the number of hits
+     */
+    public int accessBatch(int[] addresses, byte[] kinds, int[] data, int count, boolean[] hits)
+    {
+        int hitCount = 0;
+
+        for(int i = 0; i < count; i++)
+        {
+            int kind = kinds[i];
+            if(kind != TraceReader.FETCH && kind != TraceReader.READ && kind != TraceReader.WRITE) continue;
+
+            boolean hit = access(kind, addresses[i], data[i]);
+            if(hit) hitCount++;
+            if(hits != null) hits[i] = hit;
+        }
+
+        return hitCount;
+    }
+
+    /**
+     * Returns a string representation of the prefetcher and its settings.
+     * @return a string representation of the prefetcher
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%s, degree %s, distance %s", type, degree, distance);
+    }
+}
@@ -0,0 +1,51 @@
+package core.prefetch;
+
+/**
+ * Hardware prefetcher: watches the demand accesses reaching the cache and chooses blocks to bring in ahead of them.
+ * Prefetchers work on block addresses and issue at most their degree of blocks per access, starting their distance
+ * ahead of the access that triggered them.
+ */
+public interface Prefetcher
+{
+    int MAX_DEGREE = 16;
+    int MAX_DISTANCE = 64;
+
+    /**
+     * Observes a demand access and chooses the blocks to prefetch.
+     * @param kind the kind of the access, as in {@link core.trace.TraceReader}
+     * @param pc the EIP of the instruction making the access
+     * @param address the address accessed
+     * @param hit true if the access hit
+     * @param prefetchHit true if the access was the first to use a block brought in by a prefetch
+     * @param candidates receives the block-aligned addresses to prefetch, at least {@link #MAX_DEGREE} long
+     * @return the number of candidates
+     */
+    int observe(int kind, int pc, int address, boolean hit, boolean prefetchHit, int[] candidates);
+
+    /**
+     * Creates a prefetcher.
+     * @param type the type of prefetcher
+     * @param degree the number of blocks issued per trigger
+     * @param distance how many blocks ahead of the trigger the prefetches start, or run for stream buffers
+     * @param blockOffsetBits the block offset bits of the cache
+     * @return the prefetcher, or null for none
+     */
+    static Prefetcher create(PrefetcherType type, int degree, int distance, int blockOffsetBits)
+    {
+        switch(type)
+        {
+            case NextLine -> {
+                return new NextLinePrefetcher(degree, distance, blockOffsetBits);
+            }
+            case Stride -> {
+                return new StridePrefetcher(degree, distance, blockOffsetBits);
+            }
+            case Stream -> {
+                return new StreamPrefetcher(degree, distance, blockOffsetBits);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+}
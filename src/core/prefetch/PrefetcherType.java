@@ -0,0 +1,61 @@
+package core.prefetch;
+
+/**
+ * Enum representing the hardware prefetcher in front of the cache.
+ */
+public enum PrefetcherType
+{
+    None,
+    NextLine,
+    Stride,
+    Stream;
+
+    /**
+     * Converts a string to a PrefetcherType.
+     * @param argument the string to convert
+     * @return the corresponding PrefetcherType
+     */
+    public static PrefetcherType stringToPrefetcherType(String argument)
+    {
+        if (argument.equalsIgnoreCase("next-line"))
+        {
+            return PrefetcherType.NextLine;
+        }
+        if (argument.equalsIgnoreCase("stride"))
+        {
+            return PrefetcherType.Stride;
+        }
+        if (argument.equalsIgnoreCase("stream"))
+        {
+            return PrefetcherType.Stream;
+        }
+
+        return PrefetcherType.None;
+    }
+
+    /**
+     * Returns a string representation of the PrefetcherType.
+     * @return a string representation of the PrefetcherType
+     */
+    public String toString()
+    {
+        switch(this)
+        {
+            case None -> {
+                return "None";
+            }
+            case NextLine -> {
+                return "Next-line";
+            }
+            case Stride -> {
+                return "Stride by EIP";
+            }
+            case Stream -> {
+                return "Stream buffers";
+            }
+            default -> {
+                return "Something messed up";
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package core.prefetch;
+
+/**
+ * Multi-stream prefetching after Jouppi's stream buffers, filling the cache itself instead of separate buffers. Up to
+ * {@link #STREAMS} streams are tracked: a miss within the distance of the last miss of a stream in training sets its
+ * direction, and from then on a miss or the first use of a prefetched block inside the stream's window moves its head
+ * and keeps the prefetches running up to {@code distance} blocks ahead of the head, {@code degree} blocks at a time.
+ * A miss that fits no stream starts training one in place of the least recently used stream.
+ */
+public class StreamPrefetcher implements Prefetcher
+{
+    public static final int STREAMS = 8;
+
+    private final int degree;
+    private final int distance;
+    private final int blockOffsetBits;
+
+    private final boolean[] valid = new boolean[STREAMS];
+    private final int[] heads = new int[STREAMS];
+    private final int[] directions = new int[STREAMS];           //+1 or -1, 0 while training
+    private final int[] nextPrefetches = new int[STREAMS];
+    private final long[] lastUses = new long[STREAMS];
+    private long uses;
+
+    /**
+     * Constructs a StreamPrefetcher.
+     * @param degree the number of blocks prefetched per trigger
+     * @param distance how many blocks ahead of the head of a stream it is prefetched
+     * @param blockOffsetBits the block offset bits of the cache
+     */
+    public StreamPrefetcher(int degree, int distance, int blockOffsetBits)
+    {
+        this.degree = degree;
+        this.distance = distance;
+        this.blockOffsetBits = blockOffsetBits;
+    }
+
+    @Override
+    public int observe(int kind, int pc, int address, boolean hit, boolean prefetchHit, int[] candidates)
+    {
+        if(hit && !prefetchHit) return 0;
+
+        int block = address >>> blockOffsetBits;
+        uses++;
+
+        for(int stream = 0; stream < STREAMS; stream++)
+        {
+            if(!valid[stream]) continue;
+
+            int direction = directions[stream];
+            if(direction == 0)
+            {
+                int step = block - heads[stream];
+                if(step == 0 || Math.abs(step) > distance) continue;
+
+                directions[stream] = Integer.signum(step);
+                nextPrefetches[stream] = block + directions[stream];
+            }
+            else
+            {
+                int ahead = (block - heads[stream]) * direction;
+                int window = Math.max(distance, (nextPrefetches[stream] - heads[stream]) * direction);
+                if(ahead < 1 || ahead > window) continue;
+
+                if((nextPrefetches[stream] - block) * direction < 1) nextPrefetches[stream] = block + direction;
+            }
+
+            heads[stream] = block;
+            lastUses[stream] = uses;
+            return issue(stream, candidates);
+        }
+
+        //Train a new stream in place of the least recently used one
+        int victim = 0;
+        for(int stream = 0; stream < STREAMS; stream++)
+        {
+            if(!valid[stream])
+            {
+                victim = stream;
+                break;
+            }
+            if(lastUses[stream] < lastUses[victim]) victim = stream;
+        }
+
+        valid[victim] = true;
+        heads[victim] = block;
+        directions[victim] = 0;
+        lastUses[victim] = uses;
+        return 0;
+    }
+
+    /**
+     * Prefetches the next blocks of a stream, without running more than the distance ahead of its head.
+     * @param stream the stream
+     * @param candidates receives the addresses to prefetch
+     * @return the number of candidates
+     */
+    private int issue(int stream, int[] candidates)
+    {
+        int direction = directions[stream];
+        int count = 0;
+
+        while(count < degree && (nextPrefetches[stream] - heads[stream]) * direction <= distance)
+        {
+            candidates[count++] = nextPrefetches[stream] << blockOffsetBits;
+            nextPrefetches[stream] += direction;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,84 @@
+package core.prefetch;
+
+import core.trace.TraceReader;
+
+/**
+ * Stride prefetching indexed by the EIP of the instruction (Chen and Baer's reference prediction table). Each entry of
+ * a direct-mapped table follows the data accesses of one instruction: its last address, the stride between its last
+ * two accesses and a 2-bit confidence raised when the stride repeats and lowered when it does not. Once confident, an
+ * access prefetches the blocks {@code distance} to {@code distance + degree - 1} strides ahead.
+ */
+public class StridePrefetcher implements Prefetcher
+{
+    private static final int TABLE_SIZE = 256;
+    private static final int MAX_CONFIDENCE = 3;
+    private static final int PREFETCH_CONFIDENCE = 2;
+
+    private final int degree;
+    private final int distance;
+    private final int blockOffsetBits;
+
+    //Reference prediction table
+    private final boolean[] valid = new boolean[TABLE_SIZE];
+    private final int[] pcs = new int[TABLE_SIZE];
+    private final int[] lastAddresses = new int[TABLE_SIZE];
+    private final int[] strides = new int[TABLE_SIZE];
+    private final byte[] confidence = new byte[TABLE_SIZE];
+
+    /**
+     * Constructs a StridePrefetcher.
+     * @param degree the number of strides prefetched per access
+     * @param distance the number of strides ahead of the access of the first prefetch
+     * @param blockOffsetBits the block offset bits of the cache
+     */
+    public StridePrefetcher(int degree, int distance, int blockOffsetBits)
+    {
+        this.degree = degree;
+        this.distance = distance;
+        this.blockOffsetBits = blockOffsetBits;
+    }
+
+    @Override
+    public int observe(int kind, int pc, int address, boolean hit, boolean prefetchHit, int[] candidates)
+    {
+        if(kind == TraceReader.FETCH) return 0;
+
+        int slot = ((pc * 0x9E3779B9) >>> 24) & (TABLE_SIZE - 1);
+        if(!valid[slot] || pcs[slot] != pc)
+        {
+            valid[slot] = true;
+            pcs[slot] = pc;
+            lastAddresses[slot] = address;
+            strides[slot] = 0;
+            confidence[slot] = 0;
+            return 0;
+        }
+
+        int stride = address - lastAddresses[slot];
+        if(stride == 0) return 0;
+        lastAddresses[slot] = address;
+
+        if(stride == strides[slot])
+        {
+            if(confidence[slot] < MAX_CONFIDENCE) confidence[slot]++;
+        }
+        else if(confidence[slot] > 0) confidence[slot]--;
+        else strides[slot] = stride;
+
+        if(confidence[slot] < PREFETCH_CONFIDENCE) return 0;
+
+        //Strides shorter than a block land in the same block more than once
+        int count = 0;
+        int current = address >>> blockOffsetBits;
+        int previous = current;
+        for(int i = 0; i < degree; i++)
+        {
+            int block = (address + strides[slot] * (distance + i)) >>> blockOffsetBits;
+            if(block == previous || block == current) continue;
+            candidates[count++] = block << blockOffsetBits;
+            previous = block;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+package core.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single-producer/single-consumer ring of preallocated {@link TraceBatch} slots. The producer claims a free
+ * slot, fills it and publishes it; the consumer takes the oldest published slot and releases it once drained. A full
+ * ring blocks the producer, which is the backpressure on the parser.
+ */
+public class BatchRingBuffer
+{
+    private static final int SPINS = 128;
+
+    private final TraceBatch[] slots;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();     //Next slot to take
+    private final AtomicLong tail = new AtomicLong();     //Next slot to publish
+    private volatile boolean closed;
+
+    /**
+     * Constructs a BatchRingBuffer with the specified number of slots and batch capacity.
+     * @param slots the number of slots, rounded up to a power of 2
+     * @param batchCapacity the number of records per batch
+     */
+    public BatchRingBuffer(int slots, int batchCapacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, slots));
+        if(size < slots) size <<= 1;
+        this.slots = new TraceBatch[size];
+        this.mask = size - 1;
+        for(int i = 0; i < size; i++) this.slots[i] = new TraceBatch(batchCapacity);
+    }
+
+    /**
+     * Waits for a free slot, producer side.
+     * @return the slot to fill, or null if the ring was closed
+     */
+    public TraceBatch claim()
+    {
+        long t = tail.get();
+        for(int idle = 0; t - head.get() == slots.length; idle++) if(!idle(idle)) return null;
+        return slots[(int) t & mask];
+    }
+
+    /**
+     * Makes the last claimed slot visible to the consumer, producer side.
+     */
+    public void publish()
+    {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    /**
+     * Waits for a published slot, consumer side.
+     * @return the oldest published slot, or null if the ring was closed
+     */
+    public TraceBatch take()
+    {
+        long h = head.get();
+        for(int idle = 0; tail.get() == h; idle++) if(!idle(idle)) return null;
+        return slots[(int) h & mask];
+    }
+
+    /**
+     * Hands the last taken slot back to the producer, consumer side.
+     */
+    public void release()
+    {
+        head.lazySet(head.get() + 1);
+    }
+
+    /**
+     * Wakes up both sides and makes every further wait fail.
+     */
+    public void close()
+    {
+        closed = true;
+    }
+
+    /**
+     * Waits a little, spinning first and parking once the other side is clearly busy.
+     * @param iteration the number of times the caller already waited
+     * @return false if the ring was closed, true otherwise
+     */
+    private boolean idle(int iteration)
+    {
+        if(closed) return false;
+        if(iteration < SPINS) Thread.onSpinWait();
+        else LockSupport.parkNanos(10_000);
+        return true;
+    }
+}
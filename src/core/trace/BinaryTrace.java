@@ -0,0 +1,37 @@
+package core.trace;
+
+/**
+ * Layout of the compact binary trace format (.btrc).
+ *
+ * The file starts with the magic bytes "BTRC" and a version byte, followed by one record per access. Every record
+ * starts with a tag byte holding the record kind in its low 2 bits and the access length in the upper 6 bits. Fetches,
+ * reads and writes follow the tag with the zigzag varint delta of their address, fetches against the previous fetch and
+ * data accesses against the previous data access. Writes end with the data as an unsigned varint. Boundaries are the
+ * tag byte alone.
+ */
+public class BinaryTrace
+{
+    public static final String EXTENSION = ".btrc";
+    public static final byte[] MAGIC = {'B', 'T', 'R', 'C'};
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = MAGIC.length + 1;
+
+    //Largest access length that fits the upper bits of the tag byte
+    public static final int MAX_LENGTH = 0x3F;
+
+    //Largest record: tag byte, address varint and data varint
+    public static final int MAX_RECORD_SIZE = 1 + 5 + 5;
+
+    /**
+     * Checks if the leading bytes of a trace are the binary trace magic.
+     * @param header the leading bytes of the trace
+     * @param length the number of valid bytes in header
+     * @return true if the trace is a binary trace, false otherwise
+     */
+    public static boolean isMagic(byte[] header, int length)
+    {
+        if(length < MAGIC.length) return false;
+        for(int i = 0; i < MAGIC.length; i++) if(header[i] != MAGIC[i]) return false;
+        return true;
+    }
+}
@@ -0,0 +1,134 @@
+package core.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads an access stream in the binary trace format described by {@link BinaryTrace}.
+ */
+public class BinaryTraceReader implements TraceReader
+{
+    private final TraceSource source;
+    private ByteBuffer buffer;
+    private boolean eof;
+
+    //Current record
+    private int address;
+    private int length;
+    private int data;
+
+    //Delta bases
+    private int lastFetch;
+    private int lastData;
+
+
+    /**
+     * Constructs a BinaryTraceReader over the specified source and checks its header.
+     * @param source the source of the trace bytes
+     * @throws IOException if the trace could not be read or is not a binary trace
+     */
+    public BinaryTraceReader(TraceSource source) throws IOException
+    {
+        this.source = source;
+        this.buffer = source.next(null);
+        this.eof = !buffer.hasRemaining();
+
+        fill(BinaryTrace.HEADER_SIZE);
+
+        byte[] header = new byte[BinaryTrace.HEADER_SIZE];
+        int read = Math.min(header.length, buffer.remaining());
+        buffer.get(header, 0, read);
+
+        if(!BinaryTrace.isMagic(header, read)) throw new IOException("Not a binary trace");
+        if(header[BinaryTrace.MAGIC.length] != BinaryTrace.VERSION) throw new IOException("Unsupported binary trace version " + header[BinaryTrace.MAGIC.length]);
+    }
+
+    @Override
+    public int next() throws IOException
+    {
+        if(buffer.remaining() < BinaryTrace.MAX_RECORD_SIZE) fill(BinaryTrace.MAX_RECORD_SIZE);
+        if(!buffer.hasRemaining()) return END;
+
+        int tag = buffer.get() & 0xFF;
+        int kind = tag & 0x3;
+        length = tag >>> 2;
+
+        switch(kind)
+        {
+            case FETCH -> {
+                address = lastFetch += unzigzag(readVarint());
+            }
+            case READ -> {
+                address = lastData += unzigzag(readVarint());
+            }
+            case WRITE -> {
+                address = lastData += unzigzag(readVarint());
+                data = readVarint();
+            }
+        }
+
+        return kind;
+    }
+
+
+    /**
+     * Requests windows from the source until the specified number of bytes is available or the trace ends.
+     * @param bytes the number of bytes needed
+     * @throws IOException if the trace could not be read
+     */
+    private void fill(int bytes) throws IOException
+    {
+        while(!eof && buffer.remaining() < bytes)
+        {
+            int unconsumed = buffer.remaining();
+            buffer = source.next(buffer);
+            eof = buffer.remaining() == unconsumed;
+        }
+    }
+
+    private int readVarint()
+    {
+        ByteBuffer b = buffer;
+        int value = 0;
+        int shift = 0;
+        int current;
+
+        do
+        {
+            current = b.get();
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while((current & 0x80) != 0);
+
+        return value;
+    }
+
+    private static int unzigzag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public int getAddress()
+    {
+        return address;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return length;
+    }
+
+    @Override
+    public int getData()
+    {
+        return data;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        source.close();
+    }
+}
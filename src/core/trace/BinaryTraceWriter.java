@@ -0,0 +1,101 @@
+package core.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes an access stream in the binary trace format described by {@link BinaryTrace}.
+ */
+public class BinaryTraceWriter implements Closeable
+{
+    private final OutputStream out;
+    private int lastFetch;
+    private int lastData;
+
+    /**
+     * Constructs a BinaryTraceWriter and writes the header to the specified stream.
+     * @param out the stream to write to
+     * @throws IOException if the header could not be written
+     */
+    public BinaryTraceWriter(OutputStream out) throws IOException
+    {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.out.write(BinaryTrace.MAGIC);
+        this.out.write(BinaryTrace.VERSION);
+    }
+
+    /**
+     * Writes a single record.
+     * @param kind the kind of the record, one of the {@link TraceReader} kinds
+     * @param address the address of the record
+     * @param length the number of bytes accessed
+     * @param data the data written, only used for writes
+     * @throws IOException if the record could not be written or its length does not fit the tag byte
+     */
+    public void write(int kind, int address, int length, int data) throws IOException
+    {
+        if(length < 0 || length > BinaryTrace.MAX_LENGTH) throw new IOException("Access length " + length + " does not fit a binary trace record");
+
+        out.write((length << 2) | kind);
+
+        switch(kind)
+        {
+            case TraceReader.FETCH -> {
+                writeVarint(zigzag(address - lastFetch));
+                lastFetch = address;
+            }
+            case TraceReader.READ -> {
+                writeVarint(zigzag(address - lastData));
+                lastData = address;
+            }
+            case TraceReader.WRITE -> {
+                writeVarint(zigzag(address - lastData));
+                writeVarint(data);
+                lastData = address;
+            }
+        }
+    }
+
+    /**
+     * Copies every record of a reader.
+     * @param reader the reader to copy from
+     * @return the number of records written
+     * @throws IOException if a record could not be read or written
+     */
+    public long writeAll(TraceReader reader) throws IOException
+    {
+        long records = 0;
+        int kind;
+
+        while((kind = reader.next()) != TraceReader.END)
+        {
+            write(kind, reader.getAddress(), reader.getLength(), reader.getData());
+            records++;
+        }
+
+        return records;
+    }
+
+    private void writeVarint(int value) throws IOException
+    {
+        while((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+}
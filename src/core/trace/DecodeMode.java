@@ -0,0 +1,53 @@
+package core.trace;
+
+/**
+ * Enum representing how trace records are decoded before they reach the cache.
+ */
+public enum DecodeMode
+{
+    Sequential,
+    Pipeline,
+    Parallel;
+
+    /**
+     * Converts a string to a DecodeMode.
+     * @param argument the string to convert
+     * @return the corresponding DecodeMode
+     */
+    public static DecodeMode stringToDecodeMode(String argument)
+    {
+        if (argument.equalsIgnoreCase("pipeline"))
+        {
+            return DecodeMode.Pipeline;
+        }
+        if (argument.equalsIgnoreCase("parallel"))
+        {
+            return DecodeMode.Parallel;
+        }
+
+        return DecodeMode.Sequential;
+    }
+
+    /**
+     * Returns a string representation of the DecodeMode.
+     * @return a string representation of the DecodeMode
+     */
+    public String toString()
+    {
+        switch(this)
+        {
+            case Sequential -> {
+                return "Sequential";
+            }
+            case Pipeline -> {
+                return "Pipelined";
+            }
+            case Parallel -> {
+                return "Parallel";
+            }
+            default -> {
+                return "Something messed up";
+            }
+        }
+    }
+}
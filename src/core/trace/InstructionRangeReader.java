@@ -0,0 +1,69 @@
+package core.trace;
+
+import java.io.IOException;
+
+/**
+ * Reader that drops the records of the first instructions of another reader and ends after a maximum number of
+ * instructions. Instructions are counted on {@link TraceReader#BOUNDARY} records.
+ */
+public class InstructionRangeReader implements TraceReader
+{
+    private final TraceReader reader;
+    private long skip;
+    private long remaining;
+
+    /**
+     * Constructs an InstructionRangeReader over the specified reader.
+     * @param reader the reader to restrict
+     * @param skip the number of instructions to drop
+     * @param max the maximum number of instructions to return, 0 for no limit
+     */
+    public InstructionRangeReader(TraceReader reader, long skip, long max)
+    {
+        this.reader = reader;
+        this.skip = skip;
+        this.remaining = (max > 0) ? max : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int next() throws IOException
+    {
+        int kind;
+
+        while(skip > 0)
+        {
+            if((kind = reader.next()) == END) return END;
+            if(kind == BOUNDARY) skip--;
+        }
+
+        if(remaining == 0) return END;
+
+        kind = reader.next();
+        if(kind == BOUNDARY) remaining--;
+        return kind;
+    }
+
+    @Override
+    public int getAddress()
+    {
+        return reader.getAddress();
+    }
+
+    @Override
+    public int getLength()
+    {
+        return reader.getLength();
+    }
+
+    @Override
+    public int getData()
+    {
+        return reader.getData();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -0,0 +1,94 @@
+package core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Trace source that memory-maps a regular file one window at a time, so traces larger than 2 GB are read without char
+ * decoding or copies into the Java heap.
+ */
+public class MappedTraceSource implements TraceSource
+{
+    private static final long DEFAULT_WINDOW_SIZE = 1L << 26;
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final long windowSize;
+    private long windowStart;
+
+    /**
+     * Constructs a MappedTraceSource over the specified file.
+     * @param trace the trace file
+     * @throws IOException if the file could not be opened
+     */
+    public MappedTraceSource(File trace) throws IOException
+    {
+        this(trace, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a MappedTraceSource over the specified file with the specified window size.
+     * @param trace the trace file
+     * @param windowSize the number of bytes mapped at once
+     * @throws IOException if the file could not be opened
+     */
+    public MappedTraceSource(File trace, long windowSize) throws IOException
+    {
+        this(trace, 0, -1, windowSize);
+    }
+
+    /**
+     * Constructs a MappedTraceSource over a byte range of the specified file.
+     * @param trace the trace file
+     * @param start the offset of the first byte of the range
+     * @param end the offset one past the last byte of the range, or -1 for the end of the file
+     * @throws IOException if the file could not be opened
+     */
+    public MappedTraceSource(File trace, long start, long end) throws IOException
+    {
+        this(trace, start, end, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a MappedTraceSource over a byte range of the specified file.
+     * @param trace the trace file
+     * @param start the offset of the first byte of the range
+     * @param end the offset one past the last byte of the range, or -1 for the end of the file
+     * @param windowSize the number of bytes mapped at once
+     * @throws IOException if the file could not be opened
+     */
+    public MappedTraceSource(File trace, long start, long end, long windowSize) throws IOException
+    {
+        this.channel = FileChannel.open(trace.toPath(), StandardOpenOption.READ);
+        this.start = start;
+        this.end = (end < 0) ? channel.size() : Math.min(end, channel.size());
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        this.windowStart = start;
+    }
+
+    @Override
+    public ByteBuffer next(ByteBuffer previous) throws IOException
+    {
+        long consumed = (previous == null) ? start : windowStart + previous.position();
+        int unconsumed = (previous == null) ? 0 : previous.remaining();
+
+        //The previous window already reaches the end of the range
+        if(previous != null && consumed + unconsumed == end) return previous;
+
+        //A single line larger than the window, grow the window instead of returning the same bytes
+        long length = Math.min(Math.max(windowSize, 2L * unconsumed), Integer.MAX_VALUE);
+
+        windowStart = consumed;
+        return channel.map(FileChannel.MapMode.READ_ONLY, consumed, Math.min(length, end - consumed));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,253 @@
+package core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reader that splits a text trace into chunks starting on EIP lines and decodes them in parallel on a ForkJoinPool.
+ * With a sidecar {@link TraceIndex}, the chunks start on its recorded instruction boundaries instead, without scanning
+ * the trace for them. Chunks are handed to the caller strictly in file order and only a bounded number of them are
+ * decoded ahead, so the access stream is the same as the sequential one and memory use does not grow with the trace.
+ */
+public class ParallelTraceReader implements TraceReader
+{
+    private static final long DEFAULT_CHUNK_SIZE = 1L << 22;
+    private static final int BATCH_CAPACITY = 4096;
+    private static final int SCAN_SIZE = 1 << 16;
+
+    private final File trace;
+    private final FileChannel channel;
+    private final long size;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    private final int lookahead;
+
+    //Chunks submitted to the pool, oldest first
+    private final ArrayDeque<ForkJoinTask<List<TraceBatch>>> pending = new ArrayDeque<>();
+    private long nextChunk;
+
+    //Chunks cut on the boundaries of the sidecar index, or null to search for EIP lines
+    private final List<TraceIndex.Range> ranges;
+    private int nextRange;
+
+    //Consumer side
+    private List<TraceBatch> batches;
+    private int batchIndex;
+    private TraceBatch batch;
+    private int position;
+    private int address;
+    private int length;
+    private int data;
+
+
+    /**
+     * Constructs a ParallelTraceReader over the specified text trace on the common pool.
+     * @param trace the text trace file
+     * @throws IOException if the trace could not be opened
+     */
+    public ParallelTraceReader(File trace) throws IOException
+    {
+        this(trace, null);
+    }
+
+    /**
+     * Constructs a ParallelTraceReader over the specified text trace on the common pool.
+     * @param trace the text trace file
+     * @param index the sidecar index of the trace, or null
+     * @throws IOException if the trace could not be opened
+     */
+    public ParallelTraceReader(File trace, TraceIndex index) throws IOException
+    {
+        this(trace, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, index);
+    }
+
+    /**
+     * Constructs a ParallelTraceReader over the specified text trace.
+     * @param trace the text trace file
+     * @param pool the pool decoding the chunks
+     * @param chunkSize the approximate number of bytes per chunk
+     * @param index the sidecar index of the trace, or null to search the trace for chunk boundaries
+     * @throws IOException if the trace could not be opened
+     */
+    public ParallelTraceReader(File trace, ForkJoinPool pool, long chunkSize, TraceIndex index) throws IOException
+    {
+        this.trace = trace;
+        this.channel = FileChannel.open(trace.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.pool = pool;
+        this.lookahead = 2 * pool.getParallelism() + 1;
+        this.ranges = (index != null) ? index.split((int) Math.min(Integer.MAX_VALUE, (size + this.chunkSize - 1) / this.chunkSize)) : null;
+
+        while(pending.size() < lookahead && submitNextChunk());
+    }
+
+
+    /**
+     * Submits the decoding of the next chunk to the pool.
+     * @return false if the whole trace was already submitted, true otherwise
+     * @throws IOException if the trace could not be read
+     */
+    private boolean submitNextChunk() throws IOException
+    {
+        if(ranges != null)
+        {
+            if(nextRange == ranges.size()) return false;
+
+            TraceIndex.Range range = ranges.get(nextRange++);
+            pending.add(pool.submit(new Chunk(trace, range.getStart(), range.getEnd())));
+            return true;
+        }
+
+        if(nextChunk >= size) return false;
+
+        long start = nextChunk;
+        long end = findRecordStart(start + chunkSize);
+        nextChunk = end;
+
+        pending.add(pool.submit(new Chunk(trace, start, end)));
+        return true;
+    }
+
+    /**
+     * Finds the first line starting with "EIP" at or after the specified offset.
+     * @param offset the offset to search from
+     * @return the offset of the line, or the size of the trace if there is none
+     * @throws IOException if the trace could not be read
+     */
+    private long findRecordStart(long offset) throws IOException
+    {
+        //Look one byte back so a line starting exactly at offset is recognised
+        long position = offset - 1;
+
+        while(position < size)
+        {
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SCAN_SIZE, size - position));
+            int limit = window.limit();
+
+            for(int i = 0; i + 3 < limit; i++)
+            {
+                if(window.get(i) == '\n' && window.get(i + 1) == 'E' && window.get(i + 2) == 'I' && window.get(i + 3) == 'P') return position + i + 1;
+            }
+
+            if(position + limit >= size) break;
+            position += limit - 3;
+        }
+
+        return size;
+    }
+
+    @Override
+    public int next() throws IOException
+    {
+        while(batch == null || position == batch.size)
+        {
+            if(batches != null && batchIndex < batches.size())
+            {
+                batch = batches.get(batchIndex++);
+                position = 0;
+                continue;
+            }
+
+            if(pending.isEmpty()) return END;
+
+            try
+            {
+                batches = pending.poll().join();
+            }
+            catch(UncheckedIOException e)
+            {
+                throw new IOException("Chunk decoding failed", e);
+            }
+
+            batchIndex = 0;
+            batch = null;
+            submitNextChunk();
+        }
+
+        int i = position++;
+        address = batch.addresses[i];
+        length = batch.lengths[i];
+        data = batch.data[i];
+        return batch.kinds[i];
+    }
+
+    @Override
+    public int getAddress()
+    {
+        return address;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return length;
+    }
+
+    @Override
+    public int getData()
+    {
+        return data;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        for(ForkJoinTask<List<TraceBatch>> task : pending) task.cancel(false);
+        pending.clear();
+        channel.close();
+    }
+
+
+    /**
+     * Decodes the records of a byte range of the trace into batches.
+     */
+    private static class Chunk extends RecursiveTask<List<TraceBatch>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final File trace;
+        private final long start;
+        private final long end;
+
+        Chunk(File trace, long start, long end)
+        {
+            this.trace = trace;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<TraceBatch> compute()
+        {
+            List<TraceBatch> batches = new ArrayList<>();
+
+            try(TraceReader reader = new TraceParser(new MappedTraceSource(trace, start, end, end - start)))
+            {
+                TraceBatch current;
+                do
+                {
+                    current = new TraceBatch(BATCH_CAPACITY);
+                    current.fill(reader);
+                    batches.add(current);
+                } while(!current.last);
+            }
+            catch(IOException IOe)
+            {
+                throw new UncheckedIOException(IOe);
+            }
+
+            return batches;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package core.trace;
+
+import java.io.IOException;
+
+/**
+ * Reader that decodes another reader on a dedicated parser thread. Records are handed over in batches through a
+ * {@link BatchRingBuffer}, so parsing overlaps with the simulation and the record order is preserved.
+ */
+public class PipelinedTraceReader implements TraceReader
+{
+    private static final int DEFAULT_SLOTS = 8;
+    private static final int DEFAULT_BATCH_CAPACITY = 4096;
+
+    private final TraceReader reader;
+    private final BatchRingBuffer ring;
+    private final Thread parser;
+    private volatile Exception failure;
+
+    //Consumer side
+    private TraceBatch batch;
+    private int position;
+    private int address;
+    private int length;
+    private int data;
+
+
+    /**
+     * Constructs a PipelinedTraceReader over the specified reader and starts its parser thread.
+     * @param reader the reader to decode on the parser thread
+     */
+    public PipelinedTraceReader(TraceReader reader)
+    {
+        this(reader, DEFAULT_SLOTS, DEFAULT_BATCH_CAPACITY);
+    }
+
+    /**
+     * Constructs a PipelinedTraceReader over the specified reader and starts its parser thread.
+     * @param reader the reader to decode on the parser thread
+     * @param slots the number of batches in flight
+     * @param batchCapacity the number of records per batch
+     */
+    public PipelinedTraceReader(TraceReader reader, int slots, int batchCapacity)
+    {
+        this.reader = reader;
+        this.ring = new BatchRingBuffer(slots, batchCapacity);
+        this.parser = new Thread(this::produce, "trace-parser");
+        this.parser.setDaemon(true);
+        this.parser.start();
+    }
+
+
+    /**
+     * Parser thread loop, fills and publishes batches until the trace ends or the reader is closed.
+     */
+    private void produce()
+    {
+        TraceBatch current;
+
+        while((current = ring.claim()) != null)
+        {
+            try
+            {
+                current.fill(reader);
+            }
+            catch(Exception e)
+            {
+                failure = e;
+                current.size = 0;
+                current.last = true;
+            }
+
+            ring.publish();
+            if(current.last) return;
+        }
+    }
+
+    @Override
+    public int next() throws IOException
+    {
+        while(batch == null || position == batch.size)
+        {
+            if(batch != null)
+            {
+                if(batch.last)
+                {
+                    if(failure != null) throw new IOException("Trace parser failed", failure);
+                    return END;
+                }
+                ring.release();
+            }
+
+            batch = ring.take();
+            position = 0;
+            if(batch == null) return END;
+        }
+
+        int i = position++;
+        address = batch.addresses[i];
+        length = batch.lengths[i];
+        data = batch.data[i];
+        return batch.kinds[i];
+    }
+
+    @Override
+    public int getAddress()
+    {
+        return address;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return length;
+    }
+
+    @Override
+    public int getData()
+    {
+        return data;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        ring.close();
+
+        try
+        {
+            parser.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        reader.close();
+    }
+}
@@ -0,0 +1,177 @@
+package core.trace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream that reads another stream ahead on a dedicated thread, so expensive reads such as decompression
+ * overlap with whatever consumes the bytes. Blocks are recycled between the two threads and at most a fixed number
+ * of them is filled ahead.
+ */
+public class ReadAheadInputStream extends InputStream
+{
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    private static final int DEFAULT_BLOCKS = 4;
+
+    private final InputStream in;
+    private final BlockingQueue<Block> filled;
+    private final BlockingQueue<Block> free;
+    private final Thread reader;
+    private volatile boolean closed;
+
+    //Consumer side
+    private Block current;
+    private int position;
+
+
+    /**
+     * Constructs a ReadAheadInputStream over the specified stream and starts its reader thread.
+     * @param in the stream to read ahead
+     * @param name the name of the reader thread
+     */
+    public ReadAheadInputStream(InputStream in, String name)
+    {
+        this(in, name, DEFAULT_BLOCKS, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a ReadAheadInputStream over the specified stream and starts its reader thread.
+     * @param in the stream to read ahead
+     * @param name the name of the reader thread
+     * @param blocks the number of blocks read ahead
+     * @param blockSize the number of bytes per block
+     */
+    public ReadAheadInputStream(InputStream in, String name, int blocks, int blockSize)
+    {
+        this.in = in;
+        this.filled = new ArrayBlockingQueue<>(blocks + 1);
+        this.free = new ArrayBlockingQueue<>(blocks);
+        for(int i = 0; i < blocks; i++) free.add(new Block(blockSize));
+
+        this.reader = new Thread(this::readAhead, name);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+
+    /**
+     * Reader thread loop, fills free blocks until the stream ends, fails or is closed.
+     */
+    private void readAhead()
+    {
+        try
+        {
+            while(!closed)
+            {
+                Block block = free.take();
+                block.length = in.readNBytes(block.bytes, 0, block.bytes.length);
+                block.failure = null;
+
+                if(block.length == 0)
+                {
+                    block.length = -1;
+                    filled.put(block);
+                    return;
+                }
+
+                filled.put(block);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            //Closed while waiting for a block
+        }
+        catch(IOException IOe)
+        {
+            Block failed = new Block(0);
+            failed.length = -1;
+            failed.failure = IOe;
+            filled.offer(failed);
+        }
+    }
+
+    /**
+     * Makes sure the current block has unread bytes, waiting for the reader thread if needed.
+     * @return false at the end of the stream, true otherwise
+     * @throws IOException if the underlying stream failed
+     */
+    private boolean ensureBlock() throws IOException
+    {
+        if(current != null && position < current.length) return true;
+        if(current != null && current.length < 0)
+        {
+            if(current.failure != null) throw current.failure;
+            return false;
+        }
+
+        if(current != null) free.offer(current);
+
+        try
+        {
+            current = filled.take();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading ahead", e);
+        }
+
+        position = 0;
+        return ensureBlock();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if(!ensureBlock()) return -1;
+        return current.bytes[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if(len == 0) return 0;
+        if(!ensureBlock()) return -1;
+
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.bytes, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        reader.interrupt();
+
+        try
+        {
+            reader.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        in.close();
+    }
+
+
+    /**
+     * Buffer handed between the reader thread and the consumer.
+     */
+    private static class Block
+    {
+        final byte[] bytes;
+        int length;
+        IOException failure;
+
+        Block(int size)
+        {
+            bytes = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package core.trace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Trace source that reads an input stream into a single reusable heap buffer.
+ */
+public class StreamTraceSource implements TraceSource
+{
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a StreamTraceSource over the specified input stream.
+     * @param in the input stream
+     */
+    public StreamTraceSource(InputStream in)
+    {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a StreamTraceSource over the specified input stream with the specified buffer size.
+     * @param in the input stream
+     * @param bufferSize the initial size of the buffer
+     */
+    public StreamTraceSource(InputStream in, int bufferSize)
+    {
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.limit(0);
+    }
+
+    @Override
+    public ByteBuffer next(ByteBuffer previous) throws IOException
+    {
+        int unconsumed = buffer.remaining();
+
+        //A single line larger than the buffer, grow it instead of dropping bytes
+        if(unconsumed == buffer.capacity())
+        {
+            ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+            grown.put(buffer);
+            buffer = grown;
+        }
+        else buffer.compact();
+
+        int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+
+        if(read > 0) buffer.position(buffer.position() + read);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+}
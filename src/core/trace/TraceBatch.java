@@ -0,0 +1,89 @@
+package core.trace;
+
+import java.io.IOException;
+
+/**
+ * Fixed-capacity batch of decoded records held in primitive arrays, reused from one fill to the next.
+ */
+public class TraceBatch
+{
+    final byte[] kinds;
+    final int[] addresses;
+    final byte[] lengths;
+    final int[] data;
+    int size;
+    boolean last;
+
+    /**
+     * Constructs an empty TraceBatch with the specified capacity.
+     * @param capacity the maximum number of records in the batch
+     */
+    public TraceBatch(int capacity)
+    {
+        kinds = new byte[capacity];
+        addresses = new int[capacity];
+        lengths = new byte[capacity];
+        data = new int[capacity];
+    }
+
+    /**
+     * Replaces the content of the batch with the next records of a reader.
+     * @param reader the reader to decode from
+     * @return the number of records decoded
+     * @throws IOException if the trace could not be read
+     */
+    public int fill(TraceReader reader) throws IOException
+    {
+        int capacity = kinds.length;
+        int count = 0;
+        int kind = TraceReader.END;
+
+        while(count < capacity && (kind = reader.next()) != TraceReader.END)
+        {
+            kinds[count] = (byte) kind;
+            addresses[count] = reader.getAddress();
+            lengths[count] = (byte) reader.getLength();
+            data[count] = reader.getData();
+            count++;
+        }
+
+        size = count;
+        last = kind == TraceReader.END;
+        return count;
+    }
+
+    public int getCapacity()
+    {
+        return kinds.length;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public boolean isLast()
+    {
+        return last;
+    }
+
+    public byte[] getKinds()
+    {
+        return kinds;
+    }
+
+    public int[] getAddresses()
+    {
+        return addresses;
+    }
+
+    public byte[] getLengths()
+    {
+        return lengths;
+    }
+
+    public int[] getData()
+    {
+        return data;
+    }
+}
@@ -0,0 +1,297 @@
+package core.trace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent cache of decoded traces. The first simulation of a trace records its access stream into a binary trace
+ * (.btrc) in the cache directory while it runs; later simulations memory-map that file instead of parsing the text
+ * again. Entries are keyed by the canonical path, size, modification time and a content hash of the trace, and the
+ * least recently used entries are evicted once the directory exceeds its capacity.
+ */
+public class TraceCache
+{
+    public static final long DEFAULT_CAPACITY = 1L << 30;
+
+    //Bytes hashed at the start, middle and end of a trace for its content hash
+    private static final int SAMPLE_SIZE = 1 << 20;
+
+    private final File directory;
+    private final long capacity;
+
+    /**
+     * Constructs a TraceCache in the specified directory.
+     * @param directory the cache directory, created if missing
+     * @param capacity the maximum number of bytes kept in the directory
+     */
+    public TraceCache(File directory, long capacity)
+    {
+        this.directory = directory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the default cache directory, under the user's home.
+     * @return the default cache directory
+     */
+    public static File defaultDirectory()
+    {
+        return new File(System.getProperty("user.home"), ".cache/cache-simulator/traces");
+    }
+
+
+    /**
+     * Opens a reader over the specified trace, from the cache if an entry matches it. Otherwise the trace is decoded
+     * as usual and recorded into a new entry, committed once the reader reaches the end of the trace.
+     * @param trace the trace file
+     * @param mode how the records are decoded
+     * @return the reader over the trace
+     * @throws IOException if the trace could not be opened
+     */
+    public TraceReader open(File trace, DecodeMode mode) throws IOException
+    {
+        //Streams and traces that are already binary gain nothing from the cache
+        if(!trace.isFile() || TraceFiles.isBinary(trace)) return TraceFiles.open(trace, mode);
+
+        File partial = null;
+        TraceReader reader = null;
+        try
+        {
+            File entry = entryFor(trace);
+            if(entry.isFile())
+            {
+                entry.setLastModified(System.currentTimeMillis());
+                return TraceFiles.open(entry, mode);
+            }
+
+            Files.createDirectories(directory.toPath());
+            partial = File.createTempFile(entry.getName(), ".partial", directory);
+            reader = TraceFiles.open(trace, mode);
+            return new RecordingReader(reader, partial, entry);
+        }
+        catch(IOException IOe)
+        {
+            //The cache only saves time, an entry it cannot record must not fail the run
+            if(reader != null) closeQuietly(reader);
+            if(partial != null) partial.delete();
+            return TraceFiles.open(trace, mode);
+        }
+    }
+
+    /**
+     * Closes a reader that is given up on, ignoring any failure.
+     * @param reader the reader
+     */
+    private static void closeQuietly(TraceReader reader)
+    {
+        try
+        {
+            reader.close();
+        }
+        catch(IOException IOe)
+        {
+            //Nothing was read from it, the uncached reader replaces it
+        }
+    }
+
+    /**
+     * Deletes every entry of the cache, including entries left partial by interrupted runs.
+     * @return the number of entries deleted
+     */
+    public int purge()
+    {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(BinaryTrace.EXTENSION) || name.endsWith(".partial"));
+        if(files == null) return 0;
+
+        int deleted = 0;
+        for(File f : files) if(f.delete()) deleted++;
+        return deleted;
+    }
+
+
+    /**
+     * Returns the cache entry matching the current state of a trace.
+     * @param trace the trace file
+     * @return the entry, which may not exist yet
+     * @throws IOException if the trace could not be read
+     */
+    private File entryFor(File trace) throws IOException
+    {
+        String key = String.join("|",
+                trace.getCanonicalPath(),
+                Long.toString(trace.length()),
+                Long.toString(trace.lastModified()),
+                Long.toHexString(contentHash(trace)));
+
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return new File(directory, HexFormat.of().formatHex(digest, 0, 16) + BinaryTrace.EXTENSION);
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Hashes samples of the start, middle and end of a trace, so large traces are fingerprinted without reading them.
+     * @param trace the trace file
+     * @return the content hash
+     * @throws IOException if the trace could not be read
+     */
+    private static long contentHash(File trace) throws IOException
+    {
+        CRC32C crc = new CRC32C();
+        byte[] sample = new byte[SAMPLE_SIZE];
+
+        try(RandomAccessFile file = new RandomAccessFile(trace, "r"))
+        {
+            long size = file.length();
+            long[] offsets = {0, Math.max(0, size / 2 - SAMPLE_SIZE / 2), Math.max(0, size - SAMPLE_SIZE)};
+
+            for(long offset : offsets)
+            {
+                file.seek(offset);
+                int read = file.read(sample, 0, (int) Math.min(SAMPLE_SIZE, size - offset));
+                if(read > 0) crc.update(sample, 0, read);
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * Returns every committed entry of the cache.
+     * @return the entries
+     */
+    private File[] entries()
+    {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(BinaryTrace.EXTENSION));
+        return entries == null ? new File[0] : entries;
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its capacity.
+     */
+    private void evict()
+    {
+        File[] entries = entries();
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+
+        long total = 0;
+        for(File f : entries) total += f.length();
+
+        for(int i = 0; i < entries.length && total > capacity; i++)
+        {
+            long length = entries[i].length();
+            if(entries[i].delete()) total -= length;
+        }
+    }
+
+
+    /**
+     * Reader that copies every record it returns into a partial cache entry, committed at the end of the trace.
+     */
+    private class RecordingReader implements TraceReader
+    {
+        private final TraceReader reader;
+        private final File partial;
+        private final File entry;
+        private BinaryTraceWriter writer;
+
+        RecordingReader(TraceReader reader, File partial, File entry) throws IOException
+        {
+            this.reader = reader;
+            this.partial = partial;
+            this.entry = entry;
+            this.writer = new BinaryTraceWriter(new FileOutputStream(partial));
+        }
+
+        @Override
+        public int next() throws IOException
+        {
+            int kind = reader.next();
+            if(writer == null) return kind;
+
+            try
+            {
+                if(kind == END) commit();
+                else writer.write(kind, reader.getAddress(), reader.getLength(), reader.getData());
+            }
+            catch(IOException IOe)
+            {
+                //A cache failure must never fail the simulation
+                abandon();
+            }
+
+            return kind;
+        }
+
+        /**
+         * Publishes the partial entry and trims the cache.
+         * @throws IOException if the entry could not be published
+         */
+        private void commit() throws IOException
+        {
+            writer.close();
+            writer = null;
+            Files.move(partial.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        }
+
+        /**
+         * Drops the partial entry.
+         */
+        private void abandon()
+        {
+            try
+            {
+                if(writer != null) writer.close();
+            }
+            catch(IOException IOe)
+            {
+                //Deleted below either way
+            }
+
+            writer = null;
+            partial.delete();
+        }
+
+        @Override
+        public int getAddress()
+        {
+            return reader.getAddress();
+        }
+
+        @Override
+        public int getLength()
+        {
+            return reader.getLength();
+        }
+
+        @Override
+        public int getData()
+        {
+            return reader.getData();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if(writer != null) abandon();
+            reader.close();
+        }
+    }
+}
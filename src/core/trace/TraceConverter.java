@@ -0,0 +1,65 @@
+package core.trace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Converts text traces (.trc) into the binary trace format (.btrc).
+ * Usage: TraceConverter input.trc [output.btrc]
+ */
+public class TraceConverter
+{
+    public static void main(String[] args)
+    {
+        if(args.length < 1)
+        {
+            System.err.println("Usage: TraceConverter input.trc [output.btrc]");
+            System.exit(0);
+        }
+
+        File input = new File(args[0]);
+        File output = new File(args.length > 1 ? args[1] : binaryName(input));
+
+        try
+        {
+            long records = convert(input, output);
+            System.out.printf("Converted %s records: %s (%s bytes) -> %s (%s bytes)\n",
+                    records, input.getName(), input.length(), output.getName(), output.length());
+        }
+        catch(IOException IOe)
+        {
+            System.err.printf("ERROR::Could not convert \"%s\" to \"%s\": %s\n", input.getName(), output.getName(), IOe.getMessage());
+        }
+    }
+
+
+    /**
+     * Converts a trace into the binary trace format.
+     * @param input the trace to convert
+     * @param output the binary trace to write
+     * @return the number of records written
+     * @throws IOException if the trace could not be read or written
+     */
+    public static long convert(File input, File output) throws IOException
+    {
+        try(TraceReader reader = TraceFiles.open(input);
+            BinaryTraceWriter writer = new BinaryTraceWriter(new FileOutputStream(output)))
+        {
+            return writer.writeAll(reader);
+        }
+    }
+
+    /**
+     * Returns the default binary trace name for a trace, replacing its extension with .btrc.
+     * @param input the trace
+     * @return the binary trace name
+     */
+    private static String binaryName(File input)
+    {
+        String path = input.getPath();
+        int dot = path.lastIndexOf('.');
+        if(dot > path.lastIndexOf(File.separatorChar)) path = path.substring(0, dot);
+        return path + BinaryTrace.EXTENSION;
+    }
+}
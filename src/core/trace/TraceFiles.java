@@ -0,0 +1,217 @@
+package core.trace;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class TraceFiles
+{
+    public static final String GZIP_EXTENSION = ".gz";
+    public static final String STANDARD_INPUT = "-";
+
+    /**
+     * Opens a reader over the access stream of the specified trace file. Binary traces are recognised by their
+     * extension or magic header, compressed traces by a .gz extension or gzip/zlib header. Uncompressed regular files
+     * are memory-mapped, anything else (named pipes, or "-" for the standard input) is read incrementally as a stream.
+     * @param trace the trace file
+     * @return the reader over the trace
+     * @throws IOException if the trace could not be opened
+     */
+    public static TraceReader open(File trace) throws IOException
+    {
+        return open(trace, DecodeMode.Sequential);
+    }
+
+
+    /**
+     * Opens a reader over the access stream of the specified trace file, decoded with the specified mode. Parallel
+     * decoding needs record boundaries, so it only applies to regular text traces and other traces are read
+     * sequentially. It takes the boundaries from an up-to-date sidecar index when there is one.
+     * @param trace the trace file
+     * @param mode how the records are decoded
+     * @return the reader over the trace
+     * @throws IOException if the trace could not be opened
+     */
+    public static TraceReader open(File trace, DecodeMode mode) throws IOException
+    {
+        if(mode == DecodeMode.Parallel && trace.isFile() && !isCompressed(trace) && !isBinary(trace)) return new ParallelTraceReader(trace, TraceIndex.load(trace));
+
+        TraceReader reader = openFile(trace);
+
+        if(mode == DecodeMode.Pipeline) return new PipelinedTraceReader(reader);
+        return reader;
+    }
+
+
+    /**
+     * Opens a reader over a range of instructions of the specified trace file. When an up-to-date sidecar index
+     * exists for an uncompressed text trace, the reader starts at the closest indexed instruction instead of parsing
+     * the trace from its start.
+     * @param trace the trace file
+     * @param mode how the records are decoded
+     * @param skip the number of instructions to skip
+     * @param max the maximum number of instructions to read, 0 for no limit
+     * @return the reader over the range
+     * @throws IOException if the trace could not be opened
+     */
+    public static TraceReader open(File trace, DecodeMode mode, long skip, long max) throws IOException
+    {
+        if(skip <= 0 && max <= 0) return open(trace, mode);
+
+        TraceIndex index = (skip > 0 && trace.isFile() && !isCompressed(trace) && !isBinary(trace)) ? TraceIndex.load(trace) : null;
+        TraceReader reader;
+
+        if(index != null)
+        {
+            int entry = index.floor(skip);
+            reader = new TraceParser(new MappedTraceSource(trace, index.getOffset(entry), -1));
+            skip -= index.getInstruction(entry);
+            if(mode == DecodeMode.Pipeline) reader = new PipelinedTraceReader(reader);
+        }
+        else reader = open(trace, mode == DecodeMode.Parallel ? DecodeMode.Sequential : mode);
+
+        return new InstructionRangeReader(reader, skip, max);
+    }
+
+
+    /**
+     * Opens a sequential reader over the specified trace file.
+     * @param trace the trace file
+     * @return the reader over the trace
+     * @throws IOException if the trace could not be opened
+     */
+    private static TraceReader openFile(File trace) throws IOException
+    {
+        if(isStandardInput(trace)) return openStream(System.in, "stdin");
+
+        if(trace.isFile() && !isCompressed(trace))
+        {
+            boolean binary = isBinary(trace);
+            TraceSource source = new MappedTraceSource(trace);
+            return binary ? new BinaryTraceReader(source) : new TraceParser(source);
+        }
+
+        return openStream(new FileInputStream(trace), trace.getName());
+    }
+
+    /**
+     * Opens a sequential reader over a trace stream. Compressed streams are decompressed on a separate thread, and
+     * binary traces are recognised by name or magic header once decompressed.
+     * @param raw the trace stream
+     * @param name the name of the trace
+     * @return the reader over the trace
+     * @throws IOException if the trace could not be opened
+     */
+    public static TraceReader openStream(InputStream raw, String name) throws IOException
+    {
+        InputStream in = new BufferedInputStream(raw, 1 << 16);
+
+        if(name.endsWith(GZIP_EXTENSION) || isCompressed(peek(in, 2)))
+        {
+            in = new BufferedInputStream(new ReadAheadInputStream(decompress(in), "trace-decompressor"), 1 << 16);
+            if(name.endsWith(GZIP_EXTENSION)) name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+        }
+
+        byte[] header = peek(in, BinaryTrace.MAGIC.length);
+        boolean binary = name.endsWith(BinaryTrace.EXTENSION) || BinaryTrace.isMagic(header, header.length);
+        TraceSource source = new StreamTraceSource(in);
+        return binary ? new BinaryTraceReader(source) : new TraceParser(source);
+    }
+
+
+    /**
+     * Checks if a trace names the standard input ("-").
+     * @param trace the trace file
+     * @return true if the trace is read from the standard input, false otherwise
+     */
+    public static boolean isStandardInput(File trace)
+    {
+        return trace.getPath().equals(STANDARD_INPUT);
+    }
+
+    /**
+     * Checks if a regular file is a binary trace, by extension or magic header.
+     * @param trace the trace file
+     * @return true if the file is a binary trace, false otherwise
+     * @throws IOException if the file could not be read
+     */
+    public static boolean isBinary(File trace) throws IOException
+    {
+        if(trace.getName().endsWith(BinaryTrace.EXTENSION)) return true;
+
+        try(InputStream in = new FileInputStream(trace))
+        {
+            byte[] header = new byte[BinaryTrace.MAGIC.length];
+            return BinaryTrace.isMagic(header, in.readNBytes(header, 0, header.length));
+        }
+    }
+
+    /**
+     * Checks if a regular file is compressed, by extension or magic header.
+     * @param trace the trace file
+     * @return true if the file is gzip or zlib compressed, false otherwise
+     * @throws IOException if the file could not be read
+     */
+    public static boolean isCompressed(File trace) throws IOException
+    {
+        if(trace.getName().endsWith(GZIP_EXTENSION)) return true;
+
+        try(InputStream in = new FileInputStream(trace))
+        {
+            return isCompressed(in.readNBytes(2));
+        }
+    }
+
+    /**
+     * Checks if leading bytes are a gzip or zlib header.
+     * @param header the leading bytes
+     * @return true if the bytes start a compressed stream, false otherwise
+     */
+    private static boolean isCompressed(byte[] header)
+    {
+        return isGzip(header) || isZlib(header);
+    }
+
+    private static boolean isGzip(byte[] header)
+    {
+        return header.length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B;
+    }
+
+    private static boolean isZlib(byte[] header)
+    {
+        //Deflate method with a 32K window, and a header checksum that is a multiple of 31
+        return header.length >= 2 && (header[0] & 0xFF) == 0x78 && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+    }
+
+    /**
+     * Wraps a compressed stream with the matching decompressor, gzip unless the header says zlib.
+     * @param in the compressed stream, supporting marks
+     * @return the decompressed stream
+     * @throws IOException if the header could not be read
+     */
+    private static InputStream decompress(InputStream in) throws IOException
+    {
+        if(isZlib(peek(in, 2))) return new InflaterInputStream(in, new Inflater(), 1 << 16);
+        return new GZIPInputStream(in, 1 << 16);
+    }
+
+    /**
+     * Reads the leading bytes of a stream without consuming them.
+     * @param in the stream, supporting marks
+     * @param length the number of bytes to read
+     * @return the leading bytes, fewer if the stream is shorter
+     * @throws IOException if the stream could not be read
+     */
+    private static byte[] peek(InputStream in, int length) throws IOException
+    {
+        in.mark(length);
+        byte[] header = in.readNBytes(length);
+        in.reset();
+        return header;
+    }
+}
@@ -0,0 +1,304 @@
+package core.trace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sidecar seek index of a text trace (trace.trc.idx). Every N instructions it records the byte offset where the next
+ * instruction starts, so a reader can start at an instruction number without parsing what comes before it, and the
+ * trace can be cut into instruction ranges for parallel processing.
+ * Usage: TraceIndex trace.trc [interval]
+ */
+public class TraceIndex
+{
+    public static final String EXTENSION = ".idx";
+    public static final int DEFAULT_INTERVAL = 100_000;
+
+    private static final int MAGIC = 0x54494458;            //"TIDX"
+    private static final int VERSION = 1;
+
+    private final long traceSize;
+    private final long traceModified;
+    private final int interval;
+    private final long[] offsets;
+    private final long[] instructions;
+
+
+    private TraceIndex(long traceSize, long traceModified, int interval, long[] offsets, long[] instructions)
+    {
+        this.traceSize = traceSize;
+        this.traceModified = traceModified;
+        this.interval = interval;
+        this.offsets = offsets;
+        this.instructions = instructions;
+    }
+
+    public static void main(String[] args)
+    {
+        if(args.length < 1)
+        {
+            System.err.println("Usage: TraceIndex trace.trc [interval]");
+            System.exit(0);
+        }
+
+        File trace = new File(args[0]);
+        int interval = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_INTERVAL;
+
+        try
+        {
+            TraceIndex index = build(trace, interval);
+            index.save(sidecar(trace));
+            System.out.printf("Indexed %s: %s entries every %s instructions -> %s\n", trace.getName(), index.offsets.length, interval, sidecar(trace).getName());
+        }
+        catch(IOException IOe)
+        {
+            System.err.printf("ERROR::Could not index \"%s\": %s\n", trace.getName(), IOe.getMessage());
+        }
+    }
+
+
+    /**
+     * Returns the sidecar file of a trace.
+     * @param trace the trace file
+     * @return the sidecar file
+     */
+    public static File sidecar(File trace)
+    {
+        return new File(trace.getPath() + EXTENSION);
+    }
+
+    /**
+     * Scans a text trace and records the start of every interval-th instruction. An instruction ends on a blank line,
+     * as in {@link TraceParser}.
+     * @param trace the text trace file
+     * @param interval the number of instructions between two entries
+     * @return the index
+     * @throws IOException if the trace could not be read
+     */
+    public static TraceIndex build(File trace, int interval) throws IOException
+    {
+        long[] offsets = new long[16];
+        long[] instructions = new long[16];
+        int count = 1;
+        long instruction = 0;
+
+        try(MappedTraceSource source = new MappedTraceSource(trace))
+        {
+            ByteBuffer window = source.next(null);
+            long windowStart = 0;
+            boolean blank = true;
+
+            while(window.hasRemaining())
+            {
+                int limit = window.limit();
+
+                for(int i = window.position(); i < limit; i++)
+                {
+                    byte b = window.get(i);
+
+                    if(b == '\n')
+                    {
+                        if(blank && ++instruction % interval == 0)
+                        {
+                            if(count == offsets.length)
+                            {
+                                offsets = Arrays.copyOf(offsets, count * 2);
+                                instructions = Arrays.copyOf(instructions, count * 2);
+                            }
+                            offsets[count] = windowStart + i + 1;
+                            instructions[count] = instruction;
+                            count++;
+                        }
+
+                        blank = true;
+                    }
+                    else if(b < 0 || b > ' ') blank = false;
+                }
+
+                //Hand the whole window back as consumed, the scan state carries over
+                window.position(limit);
+                ByteBuffer next = source.next(window);
+                if(next == window) break;
+                windowStart += limit;
+                window = next;
+            }
+        }
+
+        return new TraceIndex(trace.length(), trace.lastModified(), interval, Arrays.copyOf(offsets, count), Arrays.copyOf(instructions, count));
+    }
+
+    /**
+     * Loads the sidecar index of a trace, if it exists and still matches the trace.
+     * @param trace the trace file
+     * @return the index, or null if there is no up-to-date sidecar
+     */
+    public static TraceIndex load(File trace)
+    {
+        File sidecar = sidecar(trace);
+        if(!sidecar.isFile()) return null;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar))))
+        {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+
+            long traceSize = in.readLong();
+            long traceModified = in.readLong();
+            if(traceSize != trace.length() || traceModified != trace.lastModified()) return null;
+
+            int interval = in.readInt();
+            int count = in.readInt();
+            long[] offsets = new long[count];
+            long[] instructions = new long[count];
+            for(int i = 0; i < count; i++)
+            {
+                offsets[i] = in.readLong();
+                instructions[i] = in.readLong();
+            }
+
+            return new TraceIndex(traceSize, traceModified, interval, offsets, instructions);
+        }
+        catch(IOException IOe)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to a sidecar file.
+     * @param sidecar the sidecar file
+     * @throws IOException if the file could not be written
+     */
+    public void save(File sidecar) throws IOException
+    {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecar))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(traceSize);
+            out.writeLong(traceModified);
+            out.writeInt(interval);
+            out.writeInt(offsets.length);
+            for(int i = 0; i < offsets.length; i++)
+            {
+                out.writeLong(offsets[i]);
+                out.writeLong(instructions[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the last entry at or before an instruction number.
+     * @param instruction the instruction number
+     * @return the position of the entry in the index
+     */
+    public int floor(long instruction)
+    {
+        int found = Arrays.binarySearch(instructions, instruction);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Returns the byte offset of an entry.
+     * @param entry the position of the entry in the index
+     * @return the offset where the instruction of the entry starts
+     */
+    public long getOffset(int entry)
+    {
+        return offsets[entry];
+    }
+
+    /**
+     * Returns the instruction number of an entry.
+     * @param entry the position of the entry in the index
+     * @return the number of instructions before the entry
+     */
+    public long getInstruction(int entry)
+    {
+        return instructions[entry];
+    }
+
+    public int getInterval()
+    {
+        return interval;
+    }
+
+    public int getEntries()
+    {
+        return offsets.length;
+    }
+
+    /**
+     * Cuts the trace into at most the specified number of contiguous ranges of about the same number of instructions,
+     * each starting on an entry of the index.
+     * @param parts the number of ranges wanted
+     * @return the ranges, in trace order
+     */
+    public List<Range> split(int parts)
+    {
+        List<Range> ranges = new ArrayList<>();
+        int entries = offsets.length;
+        int previous = 0;
+
+        for(int part = 1; part <= parts; part++)
+        {
+            int next = (part == parts) ? entries : (int) ((long) entries * part / parts);
+            if(next <= previous) continue;
+
+            long end = (next == entries) ? traceSize : offsets[next];
+            ranges.add(new Range(offsets[previous], end, instructions[previous]));
+            previous = next;
+        }
+
+        return ranges;
+    }
+
+
+    /**
+     * Byte range of a trace and the number of instructions before it.
+     */
+    public static class Range
+    {
+        private final long start;
+        private final long end;
+        private final long firstInstruction;
+
+        /**
+         * Constructs a Range.
+         * @param start the offset of the first byte of the range
+         * @param end the offset one past the last byte of the range
+         * @param firstInstruction the number of instructions before the range
+         */
+        public Range(long start, long end, long firstInstruction)
+        {
+            this.start = start;
+            this.end = end;
+            this.firstInstruction = firstInstruction;
+        }
+
+        public long getStart()
+        {
+            return start;
+        }
+
+        public long getEnd()
+        {
+            return end;
+        }
+
+        public long getFirstInstruction()
+        {
+            return firstInstruction;
+        }
+    }
+}
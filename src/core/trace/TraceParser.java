@@ -0,0 +1,235 @@
+package core.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte-level tokenizer for the text trace format. Lines are recognised by their leading bytes ("EIP (nn):", "dstM:" and
+ * "srcM:"), hexadecimal fields are decoded through a lookup table and no String or array is allocated per line.
+ */
+public class TraceParser implements TraceReader
+{
+    //Hexadecimal value of every byte, -1 if the byte is not a hex digit
+    private static final byte[] HEX = new byte[256];
+
+    static
+    {
+        Arrays.fill(HEX, (byte) -1);
+        for(int i = 0; i < 10; i++) HEX['0' + i] = (byte) i;
+        for(int i = 0; i < 6; i++)
+        {
+            HEX['a' + i] = (byte) (10 + i);
+            HEX['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    //Marker for lines that produce no record
+    private static final int SKIP = -2;
+
+    private final TraceSource source;
+    private ByteBuffer buffer;
+    private boolean eof;
+
+    //Current record
+    private int address;
+    private int length;
+    private int data;
+
+    //Pending srcM access of the last dstM line
+    private boolean pendingSource;
+    private int sourceAddress;
+
+    //Scan cursor shared by the field decoders
+    private int cursor;
+
+
+    /**
+     * Constructs a TraceParser over the specified source.
+     * @param source the source of the trace bytes
+     * @throws IOException if the trace could not be read
+     */
+    public TraceParser(TraceSource source) throws IOException
+    {
+        this.source = source;
+        this.buffer = source.next(null);
+        this.eof = !buffer.hasRemaining();
+    }
+
+    @Override
+    public int next() throws IOException
+    {
+        if(pendingSource)
+        {
+            pendingSource = false;
+            address = sourceAddress;
+            length = 4;
+            return READ;
+        }
+
+        while(true)
+        {
+            ByteBuffer b = buffer;
+            int start = b.position();
+            int limit = b.limit();
+            int end = start;
+            while(end < limit && b.get(end) != '\n') end++;
+
+            if(end == limit)
+            {
+                if(!eof)
+                {
+                    int unconsumed = buffer.remaining();
+                    buffer = source.next(buffer);
+                    eof = buffer.remaining() == unconsumed;
+                    continue;
+                }
+
+                if(start == limit) return END;
+                buffer.position(limit);
+            }
+            else buffer.position(end + 1);
+
+            int kind = decodeLine(start, end);
+            if(kind != SKIP) return kind;
+        }
+    }
+
+
+    /**
+     * Decodes a single line of the trace.
+     * @param start the index of the first byte of the line
+     * @param end the index one past the last byte of the line
+     * @return the kind of the record, or SKIP if the line holds no access
+     */
+    private int decodeLine(int start, int end)
+    {
+        ByteBuffer b = buffer;
+        cursor = start;
+        skipSpaces(end);
+
+        if(cursor == end) return BOUNDARY;
+
+        if(end - cursor > 3 && b.get(cursor) == 'E' && b.get(cursor + 1) == 'I' && b.get(cursor + 2) == 'P')
+        {
+            //EIP (nn): address ...
+            while(cursor < end && b.get(cursor) != '(') cursor++;
+            cursor++;
+            int bytes = 0;
+            for(int c; cursor < end && (c = b.get(cursor)) != ')'; cursor++) bytes = bytes * 10 + (c - '0');
+            cursor += 2;
+            skipSpaces(end);
+
+            address = decodeHex(end);
+            length = bytes;
+            return FETCH;
+        }
+
+        if(end - cursor > 4 && b.get(cursor) == 'd' && b.get(cursor + 1) == 's' && b.get(cursor + 2) == 't' && b.get(cursor + 3) == 'M')
+        {
+            //dstM: address data    srcM: address data
+            cursor += 5;
+            skipSpaces(end);
+            int dstAddress = decodeHex(end);
+            skipSpaces(end);
+            boolean dstWrite = cursor < end && HEX[b.get(cursor) & 0xFF] >= 0;
+            int dstData = dstWrite ? decodeHex(end) : skipToken(end);
+            skipSpaces(end);
+
+            cursor += 5;
+            skipSpaces(end);
+            int srcAddress = decodeHex(end);
+
+            if(dstAddress != 0)
+            {
+                pendingSource = srcAddress != 0;
+                sourceAddress = srcAddress;
+                address = dstAddress;
+                data = dstData;
+                length = 4;
+                return dstWrite ? WRITE : READ;
+            }
+
+            if(srcAddress != 0)
+            {
+                address = srcAddress;
+                length = 4;
+                return READ;
+            }
+        }
+
+        return SKIP;
+    }
+
+
+    /**
+     * Decodes the hexadecimal field at the cursor and moves the cursor past it.
+     * @param end the index one past the last byte of the line
+     * @return the decoded value
+     */
+    private int decodeHex(int end)
+    {
+        ByteBuffer b = buffer;
+        int i = cursor;
+        int value = 0;
+        int digit;
+        while(i < end && (digit = HEX[b.get(i) & 0xFF]) >= 0)
+        {
+            value = (value << 4) | digit;
+            i++;
+        }
+        cursor = i;
+        return value;
+    }
+
+    /**
+     * Moves the cursor past the non-blank field at the cursor.
+     * @param end the index one past the last byte of the line
+     * @return always 0
+     */
+    private int skipToken(int end)
+    {
+        ByteBuffer b = buffer;
+        int i = cursor;
+        while(i < end && b.get(i) > ' ') i++;
+        cursor = i;
+        return 0;
+    }
+
+    /**
+     * Moves the cursor past blanks, including the carriage return of CRLF traces.
+     * @param end the index one past the last byte of the line
+     */
+    private void skipSpaces(int end)
+    {
+        ByteBuffer b = buffer;
+        int i = cursor;
+        byte c;
+        while(i < end && (c = b.get(i)) <= ' ' && c >= 0) i++;
+        cursor = i;
+    }
+
+    @Override
+    public int getAddress()
+    {
+        return address;
+    }
+
+    @Override
+    public int getLength()
+    {
+        return length;
+    }
+
+    @Override
+    public int getData()
+    {
+        return data;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        source.close();
+    }
+}
@@ -0,0 +1,43 @@
+package core.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull-style reader over the access stream of a trace. Each call to {@link #next()} decodes one record and exposes its
+ * fields through primitive getters, so no object is allocated per record.
+ */
+public interface TraceReader extends Closeable
+{
+    //Record kinds returned by next()
+    int END = -1;                           //No more records
+    int FETCH = 0;                          //Instruction fetch (EIP line), length holds the instruction size
+    int READ = 1;                           //Data read (srcM, or dstM without data)
+    int WRITE = 2;                          //Data write (dstM with data)
+    int BOUNDARY = 3;                       //Blank line separating two instructions
+
+    /**
+     * Decodes the next record of the trace.
+     * @return the kind of the record, or {@link #END} when the trace is exhausted
+     * @throws IOException if the trace could not be read
+     */
+    int next() throws IOException;
+
+    /**
+     * Returns the address of the current record.
+     * @return the address of the current record
+     */
+    int getAddress();
+
+    /**
+     * Returns the number of bytes accessed by the current record.
+     * @return the number of bytes accessed by the current record
+     */
+    int getLength();
+
+    /**
+     * Returns the data of the current record, only meaningful for writes.
+     * @return the data of the current record
+     */
+    int getData();
+}
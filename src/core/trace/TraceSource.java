@@ -0,0 +1,21 @@
+package core.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Supplies the raw bytes of a trace to a {@link TraceParser} as a sequence of windows.
+ */
+public interface TraceSource extends Closeable
+{
+    /**
+     * Returns the next window of the trace. The window starts with the bytes of the previous window that have not been
+     * consumed yet (from its position to its limit), followed by new bytes.
+     * A window holding no new bytes marks the end of the trace.
+     * @param previous the previous window positioned at its first unconsumed byte, or null on the first call
+     * @return the next window
+     * @throws IOException if the trace could not be read
+     */
+    ByteBuffer next(ByteBuffer previous) throws IOException;
+}
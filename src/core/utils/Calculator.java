@@ -2,7 +2,6 @@ package core.utils;
 
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Random;
 
 public class Calculator
 {
@@ -126,7 +125,7 @@ public class Calculator
      */
     public static int hexToInteger(String hex)
     {
-        String radix = "01234567890ABCDEF";
+        String radix = "0123456789ABCDEF";
         hex = hex.toUpperCase();
         int integer = 0;
         for(int i = 0; i < hex.length(); i++) integer = (integer * 16) + radix.indexOf(hex.charAt(i));
@@ -135,15 +134,18 @@ public class Calculator
 
 
     /**
-     * Converts an integer to a hexadecimal string of a specified size.
-     * @param origin the integer to convert
-     * @param bound the size of the resulting hexadecimal string
-     * @return the hexadecimal string
+     * Hashes a value with a seed into 64 well-mixed bits (the SplitMix64 finalizer). The result only depends on its
+     * arguments, so it gives reproducible pseudo-random contents to any element in any order, from any thread.
+     * @param seed the seed
+     * @param value the value to hash, such as an address
+     * @return the hash
      */
-    public static int getRandomInt(int origin, int bound)
+    public static long mix(long seed, long value)
     {
-        Random r = new Random();
-        return r.nextInt(origin, bound);
+        long z = seed + value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
     /**
@@ -4,13 +4,25 @@ import core.CPU;
 import core.Cache;
 import core.PhysicalMemory;
 import core.TranslationLookasideBuffer;
+import core.prefetch.PrefetchStage;
+import core.prefetch.Prefetcher;
+import core.prefetch.PrefetcherType;
+import core.trace.DecodeMode;
+import core.trace.TraceCache;
+import core.trace.TraceFiles;
+import data.Engine;
 import data.Policy;
+import data.VictimCache;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class CommandLineParser
 {
+    //Blocks in the largest cache (8 MB of 8-byte blocks)
+    private static final int MAX_ASSOCIATIVITY = 1 << 20;
 
     /**
      * Parses the command line arguments and returns a CPU object.
@@ -27,10 +39,24 @@ public class CommandLineParser
         int cacheSize = 8;
         int blockSize = 8;
         int associativity = 1;
+        boolean fullyAssociative = false;
         int unusedPhysicalMemory = 0;
         int instructionPerTimeSlice = -1;
         Policy pol = Policy.RoundRobin;
+        Engine engine = Engine.Object;
+        boolean tagOnly = false;
+        boolean wayPrediction = true;
+        int victimCacheEntries = 0;
+        PrefetcherType prefetcherType = PrefetcherType.None;
+        int prefetchDegree = 1;
+        int prefetchDistance = 1;
+        long seed = ThreadLocalRandom.current().nextLong();
         long physicalMemorySize = Calculator.getBytes("1GB");
+        String traceCacheMode = "on";
+        File traceCacheDirectory = TraceCache.defaultDirectory();
+        long traceCacheSize = TraceCache.DEFAULT_CAPACITY;
+        int samplePeriod = 0;
+        int sampleWindow = 1000;
 
         for(int i = 0; i < arguments.length; i += 2)
         {
@@ -43,9 +69,9 @@ public class CommandLineParser
                     cpu.addTraceFile(new File(argument));
                     break;
                 case "-r":
-                    if(!(argument.equals("RR") || argument.equals("RND")))
+                    if(!List.of("RR", "RND", "LRU", "PLRU", "SRRIP", "BRRIP", "DRRIP", "OPT").contains(argument))
                     {
-                        System.err.println("WARNING::Set policy with \"RR\" or \"RND\", not \"" + argument + "\"");
+                        System.err.println("WARNING::Set policy with \"RR\", \"RND\", \"LRU\", \"PLRU\", \"SRRIP\", \"BRRIP\", \"DRRIP\" or \"OPT\", not \"" + argument + "\"");
                         pol = Policy.stringToPolicy("RR");
                         break;
                     }
@@ -58,7 +84,8 @@ public class CommandLineParser
                     blockSize = (int) CommandLineParser.powChecker(Integer.parseInt(argument), 8, 64, "Block Size");
                     break;
                 case "-a":
-                    associativity = (int) CommandLineParser.powChecker(Integer.parseInt(argument), 1, 16, "Associativity");
+                    fullyAssociative = argument.equalsIgnoreCase("full");
+                    if(!fullyAssociative) associativity = (int) CommandLineParser.powChecker(Integer.parseInt(argument), 1, MAX_ASSOCIATIVITY, "Associativity");
                     break;
                 case "-p":
                     physicalMemorySize = CommandLineParser.powChecker(Calculator.getBytes(Integer.parseInt(argument) + "MB"),
@@ -70,14 +97,127 @@ public class CommandLineParser
                 case "-n":
                     instructionPerTimeSlice = Integer.parseInt(argument);
                     break;
+                case "--engine":
+                    if(!(argument.equalsIgnoreCase("object") || argument.equalsIgnoreCase("flat")))
+                    {
+                        System.err.println("WARNING::Set the cache engine with \"object\" or \"flat\", not \"" + argument + "\"");
+                    }
+                    engine = Engine.stringToEngine(argument);
+                    break;
+                case "--tag-only":
+                    if(!(argument.equals("on") || argument.equals("off")))
+                    {
+                        System.err.println("WARNING::Set tag-only mode with \"on\" or \"off\", not \"" + argument + "\"");
+                        break;
+                    }
+                    tagOnly = argument.equals("on");
+                    break;
+                case "--way-prediction":
+                    if(!(argument.equals("on") || argument.equals("off")))
+                    {
+                        System.err.println("WARNING::Set way prediction with \"on\" or \"off\", not \"" + argument + "\"");
+                        break;
+                    }
+                    wayPrediction = argument.equals("on");
+                    break;
+                case "--victim-cache":
+                    victimCacheEntries = Integer.parseInt(argument);
+                    if(victimCacheEntries != 0) victimCacheEntries = (int) paramChecker(victimCacheEntries, VictimCache.MIN_ENTRIES, VictimCache.MAX_ENTRIES, "Victim Cache Entries");
+                    break;
+                case "--prefetch":
+                    if(!(argument.equalsIgnoreCase("none") || argument.equalsIgnoreCase("next-line") || argument.equalsIgnoreCase("stride") || argument.equalsIgnoreCase("stream")))
+                    {
+                        System.err.println("WARNING::Set the prefetcher with \"none\", \"next-line\", \"stride\" or \"stream\", not \"" + argument + "\"");
+                    }
+                    prefetcherType = PrefetcherType.stringToPrefetcherType(argument);
+                    break;
+                case "--prefetch-degree":
+                    prefetchDegree = (int) paramChecker(Integer.parseInt(argument), 1, Prefetcher.MAX_DEGREE, "Prefetch Degree");
+                    break;
+                case "--prefetch-distance":
+                    prefetchDistance = (int) paramChecker(Integer.parseInt(argument), 1, Prefetcher.MAX_DISTANCE, "Prefetch Distance");
+                    break;
+                case "--batch-size":
+                    cpu.setBatchSize((int) paramChecker(Integer.parseInt(argument), 0, 1 << 20, "Batch Size"));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(argument);
+                    break;
+                case "--decode":
+                    if(!(argument.equalsIgnoreCase("sequential") || argument.equalsIgnoreCase("pipeline") || argument.equalsIgnoreCase("parallel")))
+                    {
+                        System.err.println("WARNING::Set decoding with \"sequential\", \"pipeline\" or \"parallel\", not \"" + argument + "\"");
+                    }
+                    cpu.setDecodeMode(DecodeMode.stringToDecodeMode(argument));
+                    break;
+                case "--interval":
+                    cpu.setReportInterval((int) paramChecker(Integer.parseInt(argument), 0, Integer.MAX_VALUE, "Report Interval"));
+                    break;
+                case "--sample-period":
+                    samplePeriod = (int) paramChecker(Integer.parseInt(argument), 0, Integer.MAX_VALUE, "Sample Period");
+                    break;
+                case "--sample-window":
+                    sampleWindow = (int) paramChecker(Integer.parseInt(argument), 1, Integer.MAX_VALUE, "Sample Window");
+                    break;
+                case "--skip-instructions":
+                    cpu.setSkipInstructions(paramChecker(Long.parseLong(argument), 0, Long.MAX_VALUE, "Skipped Instructions"));
+                    break;
+                case "--max-instructions":
+                    cpu.setMaxInstructions(paramChecker(Long.parseLong(argument), 0, Long.MAX_VALUE, "Maximum Instructions"));
+                    break;
+                case "--trace-cache":
+                    if(!(argument.equals("on") || argument.equals("off") || argument.equals("purge")))
+                    {
+                        System.err.println("WARNING::Set the trace cache with \"on\", \"off\" or \"purge\", not \"" + argument + "\"");
+                        break;
+                    }
+                    traceCacheMode = argument;
+                    break;
+                case "--trace-cache-dir":
+                    traceCacheDirectory = new File(argument);
+                    break;
+                case "--trace-cache-size":
+                    traceCacheSize = Calculator.getBytes(Integer.parseInt(argument) + "MB");
+                    break;
             }
         }
 
-        cpu.setCache(new Cache(cpu, cacheSize, blockSize, associativity, instructionPerTimeSlice));
+        //A single set holds every block
+        int numBlocks = (int) (Calculator.getBytes(cacheSize + "KB") / blockSize);
+        if(fullyAssociative) associativity = numBlocks;
+        else if(associativity > numBlocks)
+        {
+            System.err.printf("WARNING::Associativity of %s exceeds the %s blocks of the cache, using a fully associative cache\n", associativity, numBlocks);
+            associativity = numBlocks;
+        }
+
+        cpu.setCache(new Cache(cpu, cacheSize, blockSize, associativity, instructionPerTimeSlice, engine, tagOnly));
+        cpu.getCache().setWayPrediction(wayPrediction);
+        cpu.getCache().setVictimCache(victimCacheEntries);
+        if(prefetcherType != PrefetcherType.None) cpu.setPrefetchStage(new PrefetchStage(cpu.getCache(), prefetcherType, prefetchDegree, prefetchDistance));
+        if(pol == Policy.OPT && cpu.getTraceFiles().stream().anyMatch(TraceFiles::isStandardInput))
+        {
+            System.err.println("WARNING::OPT replacement reads the traces twice, which the standard input does not allow; using LRU");
+            pol = Policy.LRU;
+        }
         cpu.setReplacementPolicy(pol);
         cpu.setPhysicalMemory(new PhysicalMemory(physicalMemorySize, unusedPhysicalMemory));
         cpu.getPhysicalMemory().setPageTableRAM(cpu.getTraceFiles().size());
         cpu.setTlb(new TranslationLookasideBuffer(cpu.getCache(), cpu.getPhysicalMemory()));
+        cpu.setSeed(seed);
+
+        if(samplePeriod > 0)
+        {
+            if(sampleWindow > samplePeriod) System.err.printf("WARNING::Sample Window must not exceed the Sample Period of %s, not %s\n", samplePeriod, sampleWindow);
+            cpu.setSampler(new Sampler(samplePeriod, sampleWindow));
+        }
+
+        if(!traceCacheMode.equals("off"))
+        {
+            TraceCache traceCache = new TraceCache(traceCacheDirectory, traceCacheSize);
+            if(traceCacheMode.equals("purge")) traceCache.purge();
+            cpu.setTraceCache(traceCache);
+        }
 
         return cpu;
     }
@@ -0,0 +1,153 @@
+package core.utils;
+
+/**
+ * Systematic sampling schedule (SMARTS-style). Out of every period of instructions, only the last window is simulated
+ * in detail; the instructions before it only warm the cache. Each detailed window is one sample of the hit rate, miss
+ * rate and CPI, from which the mean and its confidence interval are estimated.
+ */
+public class Sampler
+{
+    //Two-sided 95% confidence
+    private static final double Z = 1.96;
+
+    private static final int HIT_RATE = 0;
+    private static final int MISS_RATE = 1;
+    private static final int CPI = 2;
+
+    private final int period;
+    private final int window;
+    private long instruction;
+    private Statistics windowStart;
+
+    //Running mean and sum of squared deviations of every metric (Welford)
+    private int samples;
+    private final double[] mean = new double[3];
+    private final double[] m2 = new double[3];
+
+
+    /**
+     * Constructs a Sampler with the specified schedule.
+     * @param period the number of instructions between the starts of two detailed windows
+     * @param window the number of instructions simulated in detail per period
+     */
+    public Sampler(int period, int window)
+    {
+        this.period = period;
+        this.window = Math.min(window, period);
+    }
+
+
+    /**
+     * Checks if the current instruction is simulated in detail.
+     * @return true if the current instruction is in a detailed window, false if it only warms the cache
+     */
+    public boolean isDetailed()
+    {
+        return isDetailed(instruction);
+    }
+
+    /**
+     * Starts the schedule at the current instruction, opening a detailed window if it is in one.
+     * @param statistics the statistics of the detailed simulation
+     * @return true if the current instruction is in a detailed window, false if it only warms the cache
+     */
+    public boolean start(Statistics statistics)
+    {
+        windowStart = new Statistics(statistics);
+        return isDetailed();
+    }
+
+    /**
+     * Moves the schedule to the next instruction, opening or closing a detailed window when needed.
+     * @param statistics the statistics of the detailed simulation
+     * @return true if the next instruction is in a detailed window, false if it only warms the cache
+     */
+    public boolean nextInstruction(Statistics statistics)
+    {
+        boolean wasDetailed = isDetailed(instruction);
+        boolean detailed = isDetailed(++instruction);
+        long offset = instruction % period;
+
+        //A window as long as the period never leaves detailed simulation, it ends where the next one starts
+        if(wasDetailed && (!detailed || offset == 0)) closeWindow(statistics);
+        if(detailed && offset == period - window) windowStart = new Statistics(statistics);
+
+        return detailed;
+    }
+
+    /**
+     * Closes the window in progress at the end of a trace, if any instruction of it was simulated.
+     * @param statistics the statistics of the detailed simulation
+     */
+    public void finish(Statistics statistics)
+    {
+        if(isDetailed() && statistics.getInstructions() > windowStart.getInstructions()) closeWindow(statistics);
+        windowStart = new Statistics(statistics);
+    }
+
+
+    private boolean isDetailed(long instruction)
+    {
+        return instruction % period >= period - window;
+    }
+
+    /**
+     * Records the window that started at the last snapshot as one sample.
+     * @param statistics the statistics at the end of the window
+     */
+    private void closeWindow(Statistics statistics)
+    {
+        int accesses = statistics.getAccesses() - windowStart.getAccesses();
+        int hits = statistics.getHits() - windowStart.getHits();
+        int instructions = statistics.getInstructions() - windowStart.getInstructions();
+        int cycles = statistics.getCycles() - windowStart.getCycles();
+
+        if(accesses == 0 || instructions == 0) return;
+
+        samples++;
+        add(HIT_RATE, (double) hits / accesses * 100);
+        add(MISS_RATE, (double) (accesses - hits) / accesses * 100);
+        add(CPI, (double) cycles / instructions);
+    }
+
+    private void add(int metric, double value)
+    {
+        double delta = value - mean[metric];
+        mean[metric] += delta / samples;
+        m2[metric] += delta * (value - mean[metric]);
+    }
+
+    /**
+     * Returns the half-width of the confidence interval of a metric.
+     * @param metric the metric
+     * @return the half-width of the confidence interval
+     */
+    private double halfWidth(int metric)
+    {
+        if(samples < 2) return Double.NaN;
+        return Z * Math.sqrt(m2[metric] / (samples - 1)) / Math.sqrt(samples);
+    }
+
+    public int getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Returns a string representation of the sampled estimates.
+     * @return a string representation of the sampled estimates
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("***** SAMPLING RESULTS *****\n");
+        sb.append(String.format("Sampled Windows:               %s x %s instructions (every %s instructions)\n", samples, window, period));
+        sb.append(String.format("Hit Rate:                      %s%% +/- %s%% (95%% confidence)\n", String.format("%.4f", mean[HIT_RATE]), String.format("%.4f", halfWidth(HIT_RATE))));
+        sb.append(String.format("Miss Rate:                     %s%% +/- %s%% (95%% confidence)\n", String.format("%.4f", mean[MISS_RATE]), String.format("%.4f", halfWidth(MISS_RATE))));
+        sb.append(String.format("CPI:                           %s +/- %s Cycles/Instruction (95%% confidence)\n", String.format("%.2f", mean[CPI]), String.format("%.2f", halfWidth(CPI))));
+
+        return sb.toString();
+    }
+}
@@ -7,6 +7,7 @@ public class Statistics
     //Access = Hits + Misses
     //Miss -> Either the valid bit wasn't on, and it was accessed, or the tag didn't match.
     private int hits;                       //Valid bit was on and the tag matched
+    private int victimHits;                 //Hits on lines found in the victim cache, counted in hits as well
     private int replacements;               //Counting how many times something was replaced
     private int compulsoryMisses;           //Valid bit wasn't on.
     private int conflictMisses;             //Valid bit was on, but the tag did not match in the set
@@ -15,6 +16,43 @@ public class Statistics
     private int bytesRead;
     private int unusedBlocks;
 
+    //Prefetching, apart from the demand accesses above
+    private int prefetchFills;              //Blocks brought in by the prefetcher
+    private int prefetchWritebacks;         //Dirty blocks written back to make room for them
+    private int usefulPrefetches;           //Prefetched blocks later hit by a demand access
+    private int latePrefetches;             //Useful prefetches still in flight when the demand access came
+    private int unusedPrefetches;           //Prefetched blocks evicted before any use
+
+
+    /**
+     * Constructs an empty Statistics object.
+     */
+    public Statistics()
+    {
+    }
+
+    /**
+     * Constructs a Statistics object holding a copy of the counters of another.
+     * @param other the statistics to copy
+     */
+    public Statistics(Statistics other)
+    {
+        hits = other.hits;
+        victimHits = other.victimHits;
+        replacements = other.replacements;
+        compulsoryMisses = other.compulsoryMisses;
+        conflictMisses = other.conflictMisses;
+        cycles = other.cycles;
+        instructions = other.instructions;
+        bytesRead = other.bytesRead;
+        unusedBlocks = other.unusedBlocks;
+        prefetchFills = other.prefetchFills;
+        prefetchWritebacks = other.prefetchWritebacks;
+        usefulPrefetches = other.usefulPrefetches;
+        latePrefetches = other.latePrefetches;
+        unusedPrefetches = other.unusedPrefetches;
+    }
+
 
     /**
      * Increments the count of cache hits.
@@ -24,6 +62,32 @@ public class Statistics
         hits++;
     }
 
+    /**
+     * Adds to the count of cache hits.
+     * @param hits the number of hits to add
+     */
+    public void addHits(int hits)
+    {
+        this.hits += hits;
+    }
+
+    /**
+     * Increments the count of hits in the victim cache.
+     */
+    public void incVictimHits()
+    {
+        victimHits++;
+    }
+
+    /**
+     * Adds to the count of hits in the victim cache.
+     * @param victimHits the number of victim cache hits to add
+     */
+    public void addVictimHits(int victimHits)
+    {
+        this.victimHits += victimHits;
+    }
+
     /**
      * Increments the count of cache replacements.
      */
@@ -40,6 +104,15 @@ public class Statistics
         compulsoryMisses++;
     }
 
+    /**
+     * Adds to the count of compulsory cache misses.
+     * @param misses the number of misses to add
+     */
+    public void addCompulsoryMisses(int misses)
+    {
+        compulsoryMisses += misses;
+    }
+
     /**
      * Increments the count of conflict cache misses.
      */
@@ -76,6 +149,19 @@ public class Statistics
         cycles = hit ? cycles++ : (cycles += (4 * (int) Math.ceil((double) cpu.getCache().getBlockSize() / 4)));
     }
 
+    /**
+     * Adds the cycles and bytes of a batch of accesses, as {@link #incCycles(CPU, boolean, int)} would one by one.
+     * @param cpu the CPU object
+     * @param misses the number of accesses accounted as misses
+     * @param bytes the number of bytes of every access
+     * @param fetches the number of instruction fetches, which cost 2 more cycles each
+     */
+    public void addCycles(CPU cpu, int misses, int bytes, int fetches)
+    {
+        bytesRead += bytes;
+        cycles += misses * (4 * (int) Math.ceil((double) cpu.getCache().getBlockSize() / 4)) + fetches * 2;
+    }
+
     /**
      * Increments the count of unused blocks.
      */
@@ -84,6 +170,50 @@ public class Statistics
         unusedBlocks++;
     }
 
+    /**
+     * Adds to the count of unused blocks.
+     * @param blocks the number of unused blocks to add
+     */
+    public void addUnusedBlocks(int blocks)
+    {
+        unusedBlocks += blocks;
+    }
+
+    /**
+     * Increments the count of blocks filled by the prefetcher.
+     */
+    public void incPrefetchFills()
+    {
+        prefetchFills++;
+    }
+
+    /**
+     * Adds to the count of dirty blocks written back for prefetch fills.
+     * @param writebacks the number of write-backs to add
+     */
+    public void addPrefetchWritebacks(int writebacks)
+    {
+        prefetchWritebacks += writebacks;
+    }
+
+    /**
+     * Increments the count of prefetched blocks used by a demand access.
+     * @param late true if the prefetch was still in flight
+     */
+    public void incUsefulPrefetches(boolean late)
+    {
+        usefulPrefetches++;
+        if(late) latePrefetches++;
+    }
+
+    /**
+     * Increments the count of prefetched blocks evicted before any use.
+     */
+    public void incUnusedPrefetches()
+    {
+        unusedPrefetches++;
+    }
+
     /**
      * Increments the count of instructions.
      */
@@ -92,6 +222,15 @@ public class Statistics
         instructions++;
     }
 
+    /**
+     * Adds to the count of instructions.
+     * @param instructions the number of instructions to add
+     */
+    public void addInstructions(int instructions)
+    {
+        this.instructions += instructions;
+    }
+
     /**
      * Gets the total number of cache accesses.
      * @return the total number of cache accesses
@@ -101,6 +240,24 @@ public class Statistics
         return getHits() + getMisses();
     }
 
+    /**
+     * Gets the total number of instructions.
+     * @return the total number of instructions
+     */
+    public int getInstructions()
+    {
+        return instructions;
+    }
+
+    /**
+     * Gets the total number of cycles.
+     * @return the total number of cycles
+     */
+    public int getCycles()
+    {
+        return cycles;
+    }
+
     /**
      * Gets the total number of cache hits.
      * @return the total number of cache hits
@@ -110,6 +267,15 @@ public class Statistics
         return hits;
     }
 
+    /**
+     * Gets the number of hits served by the victim cache.
+     * @return the number of victim cache hits
+     */
+    public int getVictimHits()
+    {
+        return victimHits;
+    }
+
     /**
      * Gets the total number of cache misses.
      * @return the total number of cache misses
@@ -146,6 +312,59 @@ public class Statistics
         return bytesRead;
     }
 
+    public int getPrefetchFills()
+    {
+        return prefetchFills;
+    }
+
+    public int getPrefetchWritebacks()
+    {
+        return prefetchWritebacks;
+    }
+
+    public int getUsefulPrefetches()
+    {
+        return usefulPrefetches;
+    }
+
+    public int getLatePrefetches()
+    {
+        return latePrefetches;
+    }
+
+    public int getUnusedPrefetches()
+    {
+        return unusedPrefetches;
+    }
+
+    /**
+     * Returns the accuracy of the prefetcher, the share of its fills used by a demand access.
+     * @return the prefetch accuracy
+     */
+    public double getPrefetchAccuracy()
+    {
+        return prefetchFills != 0 ? (double) usefulPrefetches / prefetchFills * 100 : 0;
+    }
+
+    /**
+     * Returns the coverage of the prefetcher, the share of the misses it would have had that it removed.
+     * @return the prefetch coverage
+     */
+    public double getPrefetchCoverage()
+    {
+        int missesWithout = usefulPrefetches + getMisses();
+        return missesWithout != 0 ? (double) usefulPrefetches / missesWithout * 100 : 0;
+    }
+
+    /**
+     * Returns the timeliness of the prefetcher, the share of its useful prefetches complete before their use.
+     * @return the prefetch timeliness
+     */
+    public double getPrefetchTimeliness()
+    {
+        return usefulPrefetches != 0 ? (double) (usefulPrefetches - latePrefetches) / usefulPrefetches * 100 : 0;
+    }
+
     /**
      * Gets the total number of compulsory misses.
      * @return the total number of compulsory misses
@@ -201,6 +420,25 @@ public class Statistics
         return (double) cycles / (double) instructions;
     }
 
+    /**
+     * Returns a one-line summary of the accesses since a previous snapshot, followed by the running totals.
+     * @param previous the snapshot taken at the start of the interval
+     * @return a one-line summary of the interval
+     */
+    public String intervalString(Statistics previous)
+    {
+        int accesses = getAccesses() - previous.getAccesses();
+        int hits = getHits() - previous.getHits();
+        int instructions = getInstructions() - previous.getInstructions();
+        int cycles = getCycles() - previous.getCycles();
+
+        return String.format("[Interval] Instructions: %s  Accesses: %s  Hit Rate: %s%%  CPI: %s  |  Total Instructions: %s  Hit Rate: %s%%  CPI: %s\n",
+                instructions, accesses,
+                String.format("%.4f", accesses != 0 ? (double) hits / accesses * 100 : 0),
+                String.format("%.2f", instructions != 0 ? (double) cycles / instructions : 0),
+                getInstructions(), String.format("%.4f", getHitRate()), String.format("%.2f", CPI()));
+    }
+
     /**
      * Returns a string representation of the statistics.
      * @return a string representation of the statistics
@@ -214,6 +452,7 @@ public class Statistics
         sb.append(String.format("Total Cache Accesses:          %s (%s addresses)\n", getAccesses(), "Placeholder"));
         sb.append(String.format("Instruction Bytes:             %s SrcDst Bytes: %s\n", getBytesRead(), "Placeholder"));
         sb.append(String.format("Cache Hits:                    %s\n", getHits()));
+        if(victimHits > 0) sb.append(String.format("--- Victim Cache Hits:         %s\n", getVictimHits()));
         sb.append(String.format("Cache Misses:                  %s\n", getMisses()));
         sb.append(String.format("--- Compulsory Misses:         %s\n", getCompulsoryMisses()));
         sb.append(String.format("--- Conflict Misses:           %s\n\n", getConflictMisses()));
@@ -223,6 +462,15 @@ public class Statistics
         sb.append(String.format("Miss Rate:                     %s%%\n", String.format("%.4f", getMissRate())));
         sb.append(String.format("CPI:                           %s Cycles/Instruction\n", String.format("%.2f", CPI())));
 
+        if(prefetchFills > 0)
+        {
+            sb.append("\n***** *****  PREFETCHING:  ***** *****\n");
+            sb.append(String.format("Prefetch Fills:                %s (%s dirty write-backs)\n", prefetchFills, prefetchWritebacks));
+            sb.append(String.format("Prefetch Accuracy:             %s%% (%s used, %s evicted unused)\n", String.format("%.4f", getPrefetchAccuracy()), usefulPrefetches, unusedPrefetches));
+            sb.append(String.format("Prefetch Coverage:             %s%%\n", String.format("%.4f", getPrefetchCoverage())));
+            sb.append(String.format("Prefetch Timeliness:           %s%% (%s late)\n", String.format("%.4f", getPrefetchTimeliness()), latePrefetches));
+        }
+
         return sb.toString();
     }
 }
@@ -8,7 +8,6 @@ public class Block
     boolean dirty;
     int tag;
     int blockSize;
-    int queueNumber;
 
     int[] data;
 
@@ -28,7 +27,6 @@ public class Block
     {
         this.blockSize = blockSize;
         this.data = new int[blockSize];
-        queueNumber = 0;
         this.dirty = false;
         this.valid = false;
     }
@@ -36,25 +34,41 @@ public class Block
     /**
      * Reads data from the block at the specified address.
      * @param address the address to read from
-     * @param access the access number
      * @return the data read from the block
      */
-    public int read(AddressSplit address, int access)
+    public int read(AddressSplit address)
     {
-        if(queueNumber == 0) queueNumber = access;
-        return data[address.getOffset()];
+        return read(address.getOffset());
+    }
+
+    /**
+     * Reads data from the block at the specified offset.
+     * @param offset the offset to read from
+     * @return the data read from the block
+     */
+    public int read(int offset)
+    {
+        return data[offset];
     }
 
     /**
      * Writes data to the block at the specified address.
      * @param address the address to write to
      * @param data the data to write
-     * @param access the access number
      */
-    public void write(AddressSplit address, int data, int access)
+    public void write(AddressSplit address, int data)
+    {
+        write(address.getOffset(), data);
+    }
+
+    /**
+     * Writes data to the block at the specified offset.
+     * @param offset the offset to write to
+     * @param data the data to write
+     */
+    public void write(int offset, int data)
     {
-        if(queueNumber == 0) queueNumber = access;
-        this.data[address.getOffset()] = data;
+        this.data[offset] = data;
         setValid(true);
         setDirty(true);
     }
@@ -66,7 +80,17 @@ public class Block
      */
     public void fillBlock(AddressSplit address, int[] data)
     {
-        this.tag = address.getTag();
+        fillBlock(address.getTag(), data);
+    }
+
+    /**
+     * Fills the block with the specified data.
+     * @param tag the tag of the block
+     * @param data the data to fill the block with
+     */
+    public void fillBlock(int tag, int[] data)
+    {
+        this.tag = tag;
         this.data = data;
         setValid(true);
         setDirty(false);
@@ -107,11 +131,6 @@ public class Block
         return this.data;
     }
 
-    public int getQueueNumber()
-    {
-        return queueNumber;
-    }
-
 
     /**
      * Returns a string representation of the block.
@@ -121,11 +140,10 @@ public class Block
     {
         return String.format("""
                 Tag:        %s
-                Queue:      %s
                 Valid?      %b
                 Dirty?      %b
                 """,
-                getTag(), getQueueNumber(),
+                getTag(),
                 isValid(), isDirty());
     }
 }
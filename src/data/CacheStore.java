@@ -0,0 +1,111 @@
+package data;
+
+/**
+ * Storage of the cache lines, addressed by set index and way. {@link core.Cache} decides what to look up, fill and
+ * evict, and its {@link data.replacement.ReplacementState} chooses victims; a store only keeps tags, state bits and data. A tag-only store keeps no data: reads
+ * return 0, and written or filled data is dropped.
+ */
+public interface CacheStore
+{
+    /**
+     * Looks up a tag in a set.
+     * @param index the set index
+     * @param tag the tag
+     * @return the way holding the tag, or -1 if the tag is not in the set
+     */
+    int lookup(int index, int tag);
+
+    /**
+     * Looks up a tag in a set without counting the lookup or moving the way prediction, for accesses that are not
+     * demand accesses.
+     * @param index the set index
+     * @param tag the tag
+     * @return the way holding the tag, or -1 if the tag is not in the set
+     */
+    int peek(int index, int tag);
+
+    /**
+     * Sets whether lookups check the most recently used way of the set before the others.
+     * @param wayPrediction true to predict ways, false to always search from way 0
+     */
+    void setWayPrediction(boolean wayPrediction);
+
+    /**
+     * Sets whether lookups are counted in the lookup and predicted hits, off while the cache is only being warmed.
+     * @param counting true to count lookups, false to only perform them
+     */
+    void setCounting(boolean counting);
+
+    /**
+     * Returns the number of lookups that found their tag.
+     * @return the number of hitting lookups
+     */
+    long getLookupHits();
+
+    /**
+     * Returns the number of lookups that found their tag in the predicted way.
+     * @return the number of correct predictions
+     */
+    long getPredictedHits();
+
+    /**
+     * Returns the first way of a set that was never filled.
+     * @param index the set index
+     * @return the first invalid way, or -1 if the set is full
+     */
+    int findInvalid(int index);
+
+    /**
+     * Reads a byte of a valid line.
+     * @param index the set index
+     * @param way the way
+     * @param offset the offset in the line
+     * @return the byte read
+     */
+    int read(int index, int way, int offset);
+
+    /**
+     * Writes a byte of a valid line and marks it dirty.
+     * @param index the set index
+     * @param way the way
+     * @param offset the offset in the line
+     * @param data the byte to write
+     */
+    void write(int index, int way, int offset, int data);
+
+    /**
+     * Replaces a line with a new clean, valid block. The data is copied, so the caller may reuse the array.
+     * @param index the set index
+     * @param way the way
+     * @param tag the tag of the new block
+     * @param data the data of the new block, or null to fill the tag only and leave the data undefined
+     */
+    void fill(int index, int way, int tag, int[] data);
+
+    /**
+     * Marks a valid line dirty without writing it, for a line whose modified data was just filled back.
+     * @param index the set index
+     * @param way the way
+     */
+    void setDirty(int index, int way);
+
+    boolean isValid(int index, int way);
+
+    boolean isDirty(int index, int way);
+
+    int getTag(int index, int way);
+
+    /**
+     * Copies the data of a line.
+     * @param index the set index
+     * @param way the way
+     * @param destination the array receiving the data
+     */
+    void copyData(int index, int way, int[] destination);
+
+    /**
+     * Counts the lines that were never filled.
+     * @return the number of invalid lines
+     */
+    int countInvalid();
+}
@@ -0,0 +1,45 @@
+package data;
+
+/**
+ * Enum representing the storage layout of the cache.
+ */
+public enum Engine
+{
+    Object,
+    Flat;
+
+    /**
+     * Converts a string to an Engine.
+     * @param argument the string to convert
+     * @return the corresponding Engine
+     */
+    public static Engine stringToEngine(String argument)
+    {
+        if (argument.equalsIgnoreCase("flat"))
+        {
+            return Engine.Flat;
+        }
+
+        return Engine.Object;
+    }
+
+    /**
+     * Returns a string representation of the Engine.
+     * @return a string representation of the Engine
+     */
+    public String toString()
+    {
+        switch(this)
+        {
+            case Object -> {
+                return "Object (Set/Block)";
+            }
+            case Flat -> {
+                return "Flat (struct of arrays)";
+            }
+            default -> {
+                return "Something messed up";
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package data;
+
+/**
+ * Cache store keeping every line in flat primitive arrays (struct of arrays) instead of Set and Block objects. Line
+ * {@code set * associativity + way} has its tag in {@code tags}, its state bits in the {@code valid} and
+ * {@code dirty} bitsets and its data at {@code line * blockSize} in {@code data}, so a lookup reads one contiguous
+ * run of tags instead of chasing a pointer per block, compared several ways at once when the Vector API is available.
+ * Wide sets are looked up through a {@link WayIndex} instead.
+ * Each set remembers its most recently used way, checked before the others. It behaves exactly like
+ * {@link ObjectCacheStore}. In tag-only mode there is no data array at all.
+ */
+public class FlatCacheStore implements CacheStore
+{
+    private final int associativity;
+    private final int blockSize;
+
+    private final int[] tags;
+    private final long[] valid;
+    private final long[] dirty;
+    private final int[] data;
+    private final boolean tagOnly;
+    private final TagMatcher matcher;
+    private final WayIndex wayIndex;
+
+    //Way prediction, as Set.predictedWay
+    private final int[] predictedWays;
+    private boolean wayPrediction = true;
+    private boolean counting = true;
+    private long lookupHits;
+    private long predictedHits;
+
+    /**
+     * Constructs a FlatCacheStore with the specified geometry.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     * @param blockSize the size of a block
+     * @param tagOnly true to keep no data
+     */
+    public FlatCacheStore(int numSets, int associativity, int blockSize, boolean tagOnly)
+    {
+        int lines = numSets * associativity;
+
+        this.associativity = associativity;
+        this.blockSize = blockSize;
+
+        tags = new int[lines];
+        valid = new long[(lines + 63) >>> 6];
+        dirty = new long[(lines + 63) >>> 6];
+        this.tagOnly = tagOnly;
+        matcher = TagMatcher.create();
+        wayIndex = (associativity >= WayIndex.MIN_ASSOCIATIVITY) ? new WayIndex(numSets, associativity) : null;
+        data = tagOnly ? null : new int[lines * blockSize];
+        predictedWays = new int[numSets];
+    }
+
+    @Override
+    public int lookup(int index, int tag)
+    {
+        int base = index * associativity;
+
+        if(wayPrediction)
+        {
+            int predicted = predictedWays[index];
+            if(tags[base + predicted] == tag && isValid(base + predicted))
+            {
+                if(counting)
+                {
+                    lookupHits++;
+                    predictedHits++;
+                }
+                return predicted;
+            }
+        }
+
+        int way = (wayIndex != null) ? wayIndex.find(index, tag) : matcher.find(tags, base, associativity, valid, tag);
+        if(way >= 0)
+        {
+            if(counting) lookupHits++;
+            predictedWays[index] = way;
+        }
+        return way;
+    }
+
+    @Override
+    public int peek(int index, int tag)
+    {
+        return (wayIndex != null) ? wayIndex.find(index, tag) : matcher.find(tags, index * associativity, associativity, valid, tag);
+    }
+
+    @Override
+    public void setWayPrediction(boolean wayPrediction)
+    {
+        this.wayPrediction = wayPrediction;
+    }
+
+    @Override
+    public void setCounting(boolean counting)
+    {
+        this.counting = counting;
+    }
+
+    @Override
+    public long getLookupHits()
+    {
+        return lookupHits;
+    }
+
+    @Override
+    public long getPredictedHits()
+    {
+        return predictedHits;
+    }
+
+    @Override
+    public int findInvalid(int index)
+    {
+        int base = index * associativity;
+
+        //64 lines at a time
+        for(int line = base; line < base + associativity;)
+        {
+            int span = Math.min(64 - (line & 63), base + associativity - line);
+            long invalid = ~valid[line >>> 6] >>> (line & 63);
+            if(span < 64) invalid &= (1L << span) - 1;
+            if(invalid != 0) return line - base + Long.numberOfTrailingZeros(invalid);
+            line += span;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int read(int index, int way, int offset)
+    {
+        int line = index * associativity + way;
+        return tagOnly ? 0 : data[line * blockSize + offset];
+    }
+
+    @Override
+    public void write(int index, int way, int offset, int data)
+    {
+        int line = index * associativity + way;
+        if(!tagOnly) this.data[line * blockSize + offset] = data;
+        valid[line >>> 6] |= 1L << line;
+        dirty[line >>> 6] |= 1L << line;
+    }
+
+    @Override
+    public void fill(int index, int way, int tag, int[] data)
+    {
+        int line = index * associativity + way;
+        predictedWays[index] = way;
+
+        if(wayIndex != null)
+        {
+            if(isValid(line)) wayIndex.remove(index, tags[line]);
+            wayIndex.put(index, tag, way);
+        }
+
+        tags[line] = tag;
+        if(!tagOnly && data != null) System.arraycopy(data, 0, this.data, line * blockSize, blockSize);
+        valid[line >>> 6] |= 1L << line;
+        dirty[line >>> 6] &= ~(1L << line);
+    }
+
+    @Override
+    public void setDirty(int index, int way)
+    {
+        int line = index * associativity + way;
+        dirty[line >>> 6] |= 1L << line;
+    }
+
+    @Override
+    public boolean isValid(int index, int way)
+    {
+        return isValid(index * associativity + way);
+    }
+
+    @Override
+    public boolean isDirty(int index, int way)
+    {
+        int line = index * associativity + way;
+        return (dirty[line >>> 6] & (1L << line)) != 0;
+    }
+
+    @Override
+    public int getTag(int index, int way)
+    {
+        return tags[index * associativity + way];
+    }
+
+    @Override
+    public void copyData(int index, int way, int[] destination)
+    {
+        if(tagOnly) return;
+        System.arraycopy(data, (index * associativity + way) * blockSize, destination, 0, blockSize);
+    }
+
+    @Override
+    public int countInvalid()
+    {
+        int invalid = tags.length;
+        for(long word : valid) invalid -= Long.bitCount(word);
+        return invalid;
+    }
+
+    private boolean isValid(int line)
+    {
+        return (valid[line >>> 6] & (1L << line)) != 0;
+    }
+}
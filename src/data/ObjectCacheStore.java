@@ -0,0 +1,187 @@
+package data;
+
+/**
+ * Cache store backed by the Set/Block object graph. Wide sets are looked up through a {@link WayIndex} instead of
+ * scanning their blocks.
+ */
+public class ObjectCacheStore implements CacheStore
+{
+    private final Set[] sets;
+    private final int blockSize;
+    private final boolean tagOnly;
+    private final WayIndex wayIndex;
+    private boolean wayPrediction = true;
+    private boolean counting = true;
+    private long lookupHits;
+    private long predictedHits;
+
+    /**
+     * Constructs an ObjectCacheStore with the specified geometry.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     * @param blockSize the size of a block
+     * @param tagOnly true to keep no data in the blocks
+     */
+    public ObjectCacheStore(int numSets, int associativity, int blockSize, boolean tagOnly)
+    {
+        this.blockSize = blockSize;
+        this.tagOnly = tagOnly;
+        wayIndex = (associativity >= WayIndex.MIN_ASSOCIATIVITY) ? new WayIndex(numSets, associativity) : null;
+        sets = new Set[numSets];
+        for(int i = 0; i < sets.length; i++) sets[i] = new Set(associativity, blockSize);
+    }
+
+    @Override
+    public int lookup(int index, int tag)
+    {
+        Set set = sets[index];
+        if(wayIndex != null)
+        {
+            int way = wayIndex.find(index, tag);
+            if(way >= 0)
+            {
+                if(counting) lookupHits++;
+                if(counting && wayPrediction && way == set.getPredictedWay()) predictedHits++;
+                set.setPredictedWay(way);
+            }
+            return way;
+        }
+
+        if(!wayPrediction)
+        {
+            int way = set.getValidWay(tag);
+            if(way >= 0 && counting) lookupHits++;
+            return way;
+        }
+
+        int predicted = set.getPredictedWay();
+        int way = set.getPredictedValidWay(tag);
+        if(way >= 0 && counting) lookupHits++;
+        if(counting && way == predicted) predictedHits++;
+        return way;
+    }
+
+    @Override
+    public int peek(int index, int tag)
+    {
+        return (wayIndex != null) ? wayIndex.find(index, tag) : sets[index].getValidWay(tag);
+    }
+
+    @Override
+    public void setWayPrediction(boolean wayPrediction)
+    {
+        this.wayPrediction = wayPrediction;
+    }
+
+    @Override
+    public void setCounting(boolean counting)
+    {
+        this.counting = counting;
+    }
+
+    @Override
+    public long getLookupHits()
+    {
+        return lookupHits;
+    }
+
+    @Override
+    public long getPredictedHits()
+    {
+        return predictedHits;
+    }
+
+    @Override
+    public int findInvalid(int index)
+    {
+        Block[] blocks = sets[index].getBlocks();
+        for(int way = 0; way < blocks.length; way++) if(!blocks[way].isValid()) return way;
+        return -1;
+    }
+
+    @Override
+    public int read(int index, int way, int offset)
+    {
+        return tagOnly ? 0 : sets[index].readByte(way, offset);
+    }
+
+    @Override
+    public void write(int index, int way, int offset, int data)
+    {
+        if(tagOnly) sets[index].getBlocks()[way].setDirty(true);
+        else sets[index].writeByte(way, offset, data);
+    }
+
+    @Override
+    public void fill(int index, int way, int tag, int[] data)
+    {
+        Block block = sets[index].getBlocks()[way];
+        sets[index].setPredictedWay(way);
+
+        if(wayIndex != null)
+        {
+            if(block.isValid()) wayIndex.remove(index, block.getTag());
+            wayIndex.put(index, tag, way);
+        }
+
+        if(tagOnly)
+        {
+            block.fillBlock(tag, block.getData());
+            return;
+        }
+
+        //Blocks start empty and keep the array of their first fill
+        int[] own = block.getData();
+        if(own.length != blockSize) own = new int[blockSize];
+        if(data != null) System.arraycopy(data, 0, own, 0, blockSize);
+        block.fillBlock(tag, own);
+    }
+
+    @Override
+    public void setDirty(int index, int way)
+    {
+        sets[index].getBlocks()[way].setDirty(true);
+    }
+
+    @Override
+    public boolean isValid(int index, int way)
+    {
+        return sets[index].getBlocks()[way].isValid();
+    }
+
+    @Override
+    public boolean isDirty(int index, int way)
+    {
+        return sets[index].getBlocks()[way].isDirty();
+    }
+
+    @Override
+    public int getTag(int index, int way)
+    {
+        return sets[index].getBlocks()[way].getTag();
+    }
+
+    @Override
+    public void copyData(int index, int way, int[] destination)
+    {
+        int[] data = sets[index].getBlocks()[way].getData();
+        System.arraycopy(data, 0, destination, 0, data.length);
+    }
+
+    @Override
+    public int countInvalid()
+    {
+        int invalid = 0;
+        for(Set s : sets) for(Block b : s.getBlocks()) if(!b.isValid()) invalid++;
+        return invalid;
+    }
+
+    /**
+     * Returns the sets.
+     * @return the sets
+     */
+    public Set[] getSets()
+    {
+        return sets;
+    }
+}
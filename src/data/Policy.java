@@ -6,7 +6,13 @@ package data;
 public enum Policy
 {
     RoundRobin,
-    Random;
+    Random,
+    LRU,
+    PLRU,
+    SRRIP,
+    BRRIP,
+    DRRIP,
+    OPT;
 
     /**
      * Converts a string to a Policy.
@@ -15,12 +21,33 @@ public enum Policy
      */
     public static Policy stringToPolicy(String argument)
     {
-        if (argument.equals("RND"))
+        switch(argument)
         {
-            return Policy.Random;
+            case "RND" -> {
+                return Policy.Random;
+            }
+            case "LRU" -> {
+                return Policy.LRU;
+            }
+            case "PLRU" -> {
+                return Policy.PLRU;
+            }
+            case "SRRIP" -> {
+                return Policy.SRRIP;
+            }
+            case "BRRIP" -> {
+                return Policy.BRRIP;
+            }
+            case "DRRIP" -> {
+                return Policy.DRRIP;
+            }
+            case "OPT" -> {
+                return Policy.OPT;
+            }
+            default -> {
+                return Policy.RoundRobin;
+            }
         }
-
-        return Policy.RoundRobin;
     }
 
     /**
@@ -37,6 +64,24 @@ public enum Policy
             case Policy.Random -> {
                 return "Random";
             }
+            case Policy.LRU -> {
+                return "Least Recently Used";
+            }
+            case Policy.PLRU -> {
+                return "Tree Pseudo-LRU";
+            }
+            case Policy.SRRIP -> {
+                return "Static RRIP";
+            }
+            case Policy.BRRIP -> {
+                return "Bimodal RRIP";
+            }
+            case Policy.DRRIP -> {
+                return "Dynamic RRIP";
+            }
+            case Policy.OPT -> {
+                return "Belady OPT";
+            }
             default -> {
                 return "Something messed up";
             }
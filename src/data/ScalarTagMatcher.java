@@ -0,0 +1,24 @@
+package data;
+
+/**
+ * Tag matcher comparing one way at a time.
+ */
+public class ScalarTagMatcher implements TagMatcher
+{
+    @Override
+    public int find(int[] tags, int base, int ways, long[] valid, int tag)
+    {
+        for(int way = 0; way < ways; way++)
+        {
+            int line = base + way;
+            if(tags[line] == tag && (valid[line >>> 6] & (1L << line)) != 0) return way;
+        }
+
+        return -1;
+    }
+
+    public String toString()
+    {
+        return "Scalar";
+    }
+}
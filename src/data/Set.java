@@ -2,13 +2,11 @@ package data;
 
 import core.utils.AddressSplit;
 
-import java.util.concurrent.ThreadLocalRandom;
-
 public class Set
 {
     private int associativity;
     private int blockSize;
-    private int accesses;
+    private int predictedWay;
     private Block[] blocks;
 
     /**
@@ -20,7 +18,6 @@ public class Set
     {
         this.associativity = associativity;
         this.blockSize = blockSize;
-        this.accesses = 0;
 
         blocks = new Block[associativity];
         for(int i = 0; i < associativity; i++) blocks[i] = new Block();
@@ -47,33 +44,44 @@ public class Set
     }
 
     /**
-     * Returns the first block in the queue.
-     * @return the first block in the queue
+     * Returns the way of the valid block with the specified tag.
+     * @param tag the tag to look for
+     * @return the way of the valid block, or -1 if no valid block has the tag
      */
-    public Block getFirstInQueue()
+    public int getValidWay(int tag)
     {
-        //First choice: Pick a block that is not yet valid
-        for(Block block : blocks) if(!block.isValid()) return block;
+        for(int way = 0; way < associativity; way++) if(blocks[way].getTag() == tag && blocks[way].isValid()) return way;
+        return -1;
+    }
 
-        //Second choice: Pick a block with the lowest queueNumber, as that means it was accessed first
-        int min = 0;
-        for(int i = 1; i < associativity; i++)
-        {
-            if(blocks[i].getQueueNumber() >= 1) min = Math.min(min, blocks[i].getQueueNumber());
-        }
+    /**
+     * Checks the predicted way first, then every way, for the valid block with the specified tag, and predicts the
+     * way found for the next lookup.
+     * @param tag the tag to look for
+     * @return the way of the valid block, or -1 if no valid block has the tag
+     */
+    public int getPredictedValidWay(int tag)
+    {
+        Block predicted = blocks[predictedWay];
+        if(predicted.getTag() == tag && predicted.isValid()) return predictedWay;
 
-        return blocks[min];
+        int way = getValidWay(tag);
+        if(way >= 0) predictedWay = way;
+        return way;
     }
 
     /**
-     * Returns a random block from the set.
-     * @return a random block from the set
+     * Returns the way checked first by the next predicted lookup, the most recently used one.
+     * @return the predicted way
      */
-    public Block getRandomBlock()
+    public int getPredictedWay()
     {
-        for(Block b : blocks) if(!b.isValid()) return b;
+        return predictedWay;
+    }
 
-        return blocks[ThreadLocalRandom.current().nextInt(0, associativity)];
+    public void setPredictedWay(int predictedWay)
+    {
+        this.predictedWay = predictedWay;
     }
 
 
@@ -89,7 +97,18 @@ public class Set
     public int readByte(AddressSplit address)
     {
         Block current = getValidBlock(address);
-        return current.read(address, ++accesses);
+        return current.read(address);
+    }
+
+    /**
+     * Reads a byte from the block in the specified way.
+     * @param way the way of the block
+     * @param offset the offset of the byte in the block
+     * @return the byte read from the block
+     */
+    public int readByte(int way, int offset)
+    {
+        return blocks[way].read(offset);
     }
 
     /**
@@ -108,7 +127,7 @@ public class Set
 
             Block current = getValidBlock(address);
 
-            data[i] = current.read(address, ++accesses);
+            data[i] = current.read(address);
         }
 
         return data;
@@ -122,7 +141,18 @@ public class Set
     public void writeByte(AddressSplit address, int data)
     {
         Block current = getValidBlock(address);
-        current.write(address, data, ++accesses);
+        current.write(address, data);
+    }
+
+    /**
+     * Writes a byte to the block in the specified way.
+     * @param way the way of the block
+     * @param offset the offset of the byte in the block
+     * @param data the byte to write
+     */
+    public void writeByte(int way, int offset, int data)
+    {
+        blocks[way].write(offset, data);
     }
 
     /**
@@ -137,7 +167,7 @@ public class Set
         for(int i = 0; i < bytes; i++)
         {
             Block current = getValidBlock(new AddressSplit(address, i));
-            current.write(address, data[i], ++accesses);
+            current.write(address, data[i]);
         }
     }
 }
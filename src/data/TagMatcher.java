@@ -0,0 +1,46 @@
+package data;
+
+/**
+ * Finds the valid way holding a tag in a run of contiguous tags, such as the tags of a set in {@link FlatCacheStore}.
+ */
+public interface TagMatcher
+{
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Finds the first valid way holding a tag.
+     * @param tags the tags of every line
+     * @param base the line of way 0
+     * @param ways the number of ways
+     * @param valid the valid bits of every line
+     * @param tag the tag to look for
+     * @return the way holding the tag, or -1 if no valid way holds it
+     */
+    int find(int[] tags, int base, int ways, long[] valid, int tag);
+
+    /**
+     * Returns the fastest matcher available: the Vector API one when the JVM was started with
+     * --add-modules jdk.incubator.vector, the scalar one otherwise.
+     * @return the matcher
+     */
+    static TagMatcher create()
+    {
+        if(ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) return new VectorTagMatcher();
+        return new ScalarTagMatcher();
+    }
+
+    /**
+     * Returns the valid bits of consecutive lines, line {@code from} in bit 0.
+     * @param valid the valid bits of every line
+     * @param from the first line
+     * @param count the number of lines, at most 64
+     * @return the valid bits of the lines
+     */
+    static long validBits(long[] valid, int from, int count)
+    {
+        int shift = from & 63;
+        long bits = valid[from >>> 6] >>> shift;
+        if(shift + count > 64) bits |= valid[(from >>> 6) + 1] << (64 - shift);
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+}
@@ -0,0 +1,65 @@
+package data;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Tag matcher comparing as many ways as the host's preferred vector holds with one SIMD compare, masked by the valid
+ * bits of those ways. Sets smaller than that use vectors half as wide, and sets smaller than a half vector, or ways
+ * left over past the last full vector, are compared one at a time. Only load this class when the jdk.incubator.vector module is present, see {@link TagMatcher#create()}.
+ */
+public class VectorTagMatcher implements TagMatcher
+{
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> HALF = IntVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    @Override
+    public int find(int[] tags, int base, int ways, long[] valid, int tag)
+    {
+        int way = 0;
+
+        if(ways >= SPECIES.length())
+        {
+            int lanes = SPECIES.length();
+            IntVector key = IntVector.broadcast(SPECIES, tag);
+
+            for(; way + lanes <= ways; way += lanes)
+            {
+                long matches = IntVector.fromArray(SPECIES, tags, base + way).compare(VectorOperators.EQ, key).toLong();
+                if(matches == 0) continue;
+
+                matches &= TagMatcher.validBits(valid, base + way, lanes);
+                if(matches != 0) return way + Long.numberOfTrailingZeros(matches);
+            }
+        }
+        else if(ways >= HALF.length())
+        {
+            int lanes = HALF.length();
+            IntVector key = IntVector.broadcast(HALF, tag);
+
+            for(; way + lanes <= ways; way += lanes)
+            {
+                long matches = IntVector.fromArray(HALF, tags, base + way).compare(VectorOperators.EQ, key).toLong();
+                if(matches == 0) continue;
+
+                matches &= TagMatcher.validBits(valid, base + way, lanes);
+                if(matches != 0) return way + Long.numberOfTrailingZeros(matches);
+            }
+        }
+
+        for(; way < ways; way++)
+        {
+            int line = base + way;
+            if(tags[line] == tag && (valid[line >>> 6] & (1L << line)) != 0) return way;
+        }
+
+        return -1;
+    }
+
+    public String toString()
+    {
+        return "Vector (" + SPECIES.length() + "/" + HALF.length() + " lanes)";
+    }
+}
@@ -0,0 +1,192 @@
+package data;
+
+/**
+ * Small fully associative buffer of the lines evicted from a cache (Jouppi, ISCA 1990). A miss that finds its block
+ * here swaps it with the line the cache evicts instead of going to memory. Blocks are found through a
+ * {@link WayIndex} holding a single set, so a lookup costs the same for 4 or 64 entries. Empty entries are kept on
+ * a stack and the full ones on a list in insertion order, so choosing the entry to replace, an empty one or else the
+ * least recently inserted, costs the same too. In tag-only mode there is no data.
+ */
+public class VictimCache
+{
+    public static final int MIN_ENTRIES = 4;
+    public static final int MAX_ENTRIES = 64;
+
+    private final int entries;
+    private final int blockSize;
+    private final int[] blocks;
+    private final boolean[] valid;
+    private final boolean[] dirty;
+    private final int[] data;
+    private final WayIndex index;
+
+    //Stack of the empty entries, and the position of each empty entry on it
+    private final int[] free;
+    private final int[] freeSlots;
+    private int freeCount;
+
+    //Doubly linked list of the full entries, from the least to the most recently inserted
+    private final int[] older;
+    private final int[] newer;
+    private int oldest = -1;
+    private int newest = -1;
+
+    /**
+     * Constructs an empty VictimCache.
+     * @param entries the number of lines it holds
+     * @param blockSize the size of a line
+     * @param tagOnly true to keep no data
+     */
+    public VictimCache(int entries, int blockSize, boolean tagOnly)
+    {
+        this.entries = entries;
+        this.blockSize = blockSize;
+        blocks = new int[entries];
+        valid = new boolean[entries];
+        dirty = new boolean[entries];
+        data = tagOnly ? null : new int[entries * blockSize];
+        index = new WayIndex(1, entries);
+
+        free = new int[entries];
+        freeSlots = new int[entries];
+        older = new int[entries];
+        newer = new int[entries];
+        for(int entry = entries - 1; entry >= 0; entry--) push(entry);
+    }
+
+    /**
+     * Looks up a block.
+     * @param block the block address, the address without its offset bits
+     * @return the entry holding the block, or -1 if the buffer does not hold it
+     */
+    public int find(int block)
+    {
+        return index.find(0, block);
+    }
+
+    /**
+     * Chooses the entry receiving the next evicted line, an empty one if there is one, else the oldest.
+     * @return the entry to replace
+     */
+    public int victim()
+    {
+        return (freeCount > 0) ? free[freeCount - 1] : oldest;
+    }
+
+    /**
+     * Replaces an entry with a line evicted from the cache. The data is copied, so the caller may reuse the array.
+     * @param entry the entry
+     * @param block the block address of the line
+     * @param dirty true if the line was modified
+     * @param data the data of the line, or null to leave the data of the entry as it is
+     */
+    public void put(int entry, int block, boolean dirty, int[] data)
+    {
+        if(valid[entry])
+        {
+            index.remove(0, blocks[entry]);
+            unlink(entry);
+        }
+        else pop(entry);
+        index.put(0, block, entry);
+        link(entry);
+
+        blocks[entry] = block;
+        valid[entry] = true;
+        this.dirty[entry] = dirty;
+        if(this.data != null && data != null) System.arraycopy(data, 0, this.data, entry * blockSize, blockSize);
+    }
+
+    /**
+     * Empties an entry.
+     * @param entry the entry
+     */
+    public void remove(int entry)
+    {
+        if(!valid[entry]) return;
+
+        index.remove(0, blocks[entry]);
+        unlink(entry);
+        push(entry);
+        valid[entry] = false;
+        dirty[entry] = false;
+    }
+
+    public boolean isValid(int entry)
+    {
+        return valid[entry];
+    }
+
+    public boolean isDirty(int entry)
+    {
+        return dirty[entry];
+    }
+
+    public int getBlock(int entry)
+    {
+        return blocks[entry];
+    }
+
+    /**
+     * Copies the data of an entry.
+     * @param entry the entry
+     * @param destination the array receiving the data
+     */
+    public void copyData(int entry, int[] destination)
+    {
+        if(data == null) return;
+        System.arraycopy(data, entry * blockSize, destination, 0, blockSize);
+    }
+
+    public int getEntries()
+    {
+        return entries;
+    }
+
+
+    /**
+     * Pushes an entry on the stack of the empty entries.
+     * @param entry the entry
+     */
+    private void push(int entry)
+    {
+        freeSlots[entry] = freeCount;
+        free[freeCount++] = entry;
+    }
+
+    /**
+     * Takes an entry off the stack of the empty entries, moving the top of the stack into its place.
+     * @param entry the entry, which must be empty
+     */
+    private void pop(int entry)
+    {
+        int top = free[--freeCount];
+        free[freeSlots[entry]] = top;
+        freeSlots[top] = freeSlots[entry];
+    }
+
+    /**
+     * Appends an entry to the insertion order, as the most recently inserted.
+     * @param entry the entry
+     */
+    private void link(int entry)
+    {
+        older[entry] = newest;
+        newer[entry] = -1;
+        if(newest >= 0) newer[newest] = entry;
+        else oldest = entry;
+        newest = entry;
+    }
+
+    /**
+     * Removes an entry from the insertion order.
+     * @param entry the entry, which must be full
+     */
+    private void unlink(int entry)
+    {
+        if(older[entry] >= 0) newer[older[entry]] = newer[entry];
+        else oldest = newer[entry];
+        if(newer[entry] >= 0) older[newer[entry]] = older[entry];
+        else newest = older[entry];
+    }
+}
@@ -0,0 +1,100 @@
+package data;
+
+/**
+ * Hash table from tag to way for every set of a cache, so a lookup in a wide set costs about the same as in a 4-way
+ * set instead of growing with the associativity. Each set owns a power-of-two region of at least twice its
+ * associativity, probed linearly, and only valid lines are in the table: a fill removes the tag it evicts and adds
+ * the new one. Removals shift the following entries back, so there are no tombstones.
+ */
+public class WayIndex
+{
+    //Sets narrower than this are faster to scan
+    public static final int MIN_ASSOCIATIVITY = 32;
+
+    private final int bits;
+    private final int mask;
+    private final int[] tags;
+    private final int[] ways;           //way + 1, 0 for an empty slot
+
+    /**
+     * Constructs an empty WayIndex.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     */
+    public WayIndex(int numSets, int associativity)
+    {
+        int capacity = Integer.highestOneBit(Math.max(1, associativity) * 2 - 1) << 1;
+
+        bits = Integer.numberOfTrailingZeros(capacity);
+        mask = capacity - 1;
+        tags = new int[numSets * capacity];
+        ways = new int[numSets * capacity];
+    }
+
+    /**
+     * Finds the way holding a tag.
+     * @param index the set index
+     * @param tag the tag
+     * @return the way holding the tag, or -1 if the set does not hold it
+     */
+    public int find(int index, int tag)
+    {
+        int base = index << bits;
+
+        for(int slot = hash(tag);; slot = (slot + 1) & mask)
+        {
+            int way = ways[base + slot];
+            if(way == 0) return -1;
+            if(tags[base + slot] == tag) return way - 1;
+        }
+    }
+
+    /**
+     * Adds a tag that the set does not hold yet.
+     * @param index the set index
+     * @param tag the tag
+     * @param way the way holding the tag
+     */
+    public void put(int index, int tag, int way)
+    {
+        int base = index << bits;
+        int slot = hash(tag);
+        while(ways[base + slot] != 0) slot = (slot + 1) & mask;
+
+        tags[base + slot] = tag;
+        ways[base + slot] = way + 1;
+    }
+
+    /**
+     * Removes a tag from a set, if the set holds it.
+     * @param index the set index
+     * @param tag the tag
+     */
+    public void remove(int index, int tag)
+    {
+        int base = index << bits;
+        int hole = hash(tag);
+
+        while(ways[base + hole] != 0 && tags[base + hole] != tag) hole = (hole + 1) & mask;
+        if(ways[base + hole] == 0) return;
+
+        //Shift back every following entry that may sit in the hole without ending up before its home slot
+        for(int next = (hole + 1) & mask; ways[base + next] != 0; next = (next + 1) & mask)
+        {
+            int home = hash(tags[base + next]);
+            if(((next - home) & mask) >= ((next - hole) & mask))
+            {
+                tags[base + hole] = tags[base + next];
+                ways[base + hole] = ways[base + next];
+                hole = next;
+            }
+        }
+
+        ways[base + hole] = 0;
+    }
+
+    private int hash(int tag)
+    {
+        return (tag * 0x9E3779B9) >>> (32 - bits);
+    }
+}
@@ -0,0 +1,75 @@
+package data.replacement;
+
+/**
+ * Belady's optimal replacement: the victim is the line whose block is accessed again the furthest in the future, or
+ * never. It needs the whole access stream in advance, as a {@link NextUseIndex} that this state reads one access at a
+ * time, so every access of the cache has to reach it in order, through {@link #hit} or {@link #fill}.
+ */
+public class BeladyReplacement implements ReplacementState
+{
+    private final int associativity;
+    private final NextUseIndex nextUses;
+
+    //Position of the next access of each line's block
+    private final long[] nextUse;
+    private long position;
+
+    /**
+     * Constructs a BeladyReplacement for the specified geometry and access stream.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     * @param nextUses the next-use distances of the accesses, from the first access of the simulation
+     */
+    public BeladyReplacement(int numSets, int associativity, NextUseIndex nextUses)
+    {
+        this.associativity = associativity;
+        this.nextUses = nextUses;
+        nextUse = new long[numSets * associativity];
+    }
+
+    @Override
+    public void hit(int index, int way)
+    {
+        record(index * associativity + way);
+    }
+
+    @Override
+    public void fill(int index, int way)
+    {
+        record(index * associativity + way);
+    }
+
+    /**
+     * Records a prefetched block. Prefetches are not part of the demand stream the next uses were computed from, so
+     * the block counts as used last of all until a demand access reaches it.
+     * @param index the set index
+     * @param way the way filled
+     */
+    @Override
+    public void prefetch(int index, int way)
+    {
+        nextUse[index * associativity + way] = Long.MAX_VALUE;
+    }
+
+    @Override
+    public int victim(int index)
+    {
+        int base = index * associativity;
+        int victim = 0;
+
+        for(int way = 1; way < associativity; way++) if(nextUse[base + way] > nextUse[base + victim]) victim = way;
+
+        return victim;
+    }
+
+    /**
+     * Consumes the next access of the stream, made to a line.
+     * @param line the line accessed
+     */
+    private void record(int line)
+    {
+        int distance = nextUses.next();
+        nextUse[line] = (distance == NextUseIndex.NEVER) ? Long.MAX_VALUE : position + distance;
+        position++;
+    }
+}
@@ -0,0 +1,86 @@
+package data.replacement;
+
+/**
+ * Exact least recently used replacement. The ways of each set form a doubly linked recency list kept in flat arrays,
+ * most recently used first, so a hit or a fill moves its way to the front and the victim is read from the back without
+ * scanning the set.
+ */
+public class LruReplacement implements ReplacementState
+{
+    private final int associativity;
+
+    //Per line, as ways of the same set
+    private final int[] previous;
+    private final int[] next;
+
+    //Per set
+    private final int[] heads;
+    private final int[] tails;
+
+    /**
+     * Constructs a LruReplacement for the specified geometry, every set ordered from way 0 to its last way.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     */
+    public LruReplacement(int numSets, int associativity)
+    {
+        this.associativity = associativity;
+        previous = new int[numSets * associativity];
+        next = new int[numSets * associativity];
+        heads = new int[numSets];
+        tails = new int[numSets];
+
+        for(int index = 0; index < numSets; index++)
+        {
+            int base = index * associativity;
+            for(int way = 0; way < associativity; way++)
+            {
+                previous[base + way] = way - 1;
+                next[base + way] = (way + 1 < associativity) ? way + 1 : -1;
+            }
+            tails[index] = associativity - 1;
+        }
+    }
+
+    @Override
+    public void hit(int index, int way)
+    {
+        moveToFront(index, way);
+    }
+
+    @Override
+    public void fill(int index, int way)
+    {
+        moveToFront(index, way);
+    }
+
+    @Override
+    public int victim(int index)
+    {
+        return tails[index];
+    }
+
+    /**
+     * Makes a way the most recently used of its set.
+     * @param index the set index
+     * @param way the way
+     */
+    private void moveToFront(int index, int way)
+    {
+        if(heads[index] == way) return;
+
+        int base = index * associativity;
+        int before = previous[base + way];
+        int after = next[base + way];
+
+        //Unlink, the way is not the head so it has a previous way
+        next[base + before] = after;
+        if(after >= 0) previous[base + after] = before;
+        else tails[index] = before;
+
+        previous[base + way] = -1;
+        next[base + way] = heads[index];
+        previous[base + heads[index]] = way;
+        heads[index] = way;
+    }
+}
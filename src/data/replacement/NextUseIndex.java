@@ -0,0 +1,249 @@
+package data.replacement;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * For every access of a cache, the number of accesses until its block is accessed again, as needed by Belady's
+ * optimal replacement. The accesses are recorded as block addresses, spilled to a temporary file a chunk at a time,
+ * then scanned backwards chunk by chunk to compute the distances into a second temporary file, which is read forwards
+ * during the simulation. Memory holds one or two chunks and a table of the last position of every distinct block.
+ */
+public class NextUseIndex implements AutoCloseable
+{
+    public static final int CHUNK = 1 << 20;
+
+    //Distance of a block that is never accessed again
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private final File file;
+    private final FileChannel channel;
+    private final long count;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK * Integer.BYTES).order(ByteOrder.nativeOrder());
+    private final IntBuffer distances = buffer.asIntBuffer();
+    private long read;
+
+
+    private NextUseIndex(File file, long count) throws IOException
+    {
+        this.file = file;
+        this.count = count;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        distances.limit(0);
+    }
+
+    /**
+     * Returns the next-use distance of the next access, in accesses.
+     * @return the distance to the next access of the same block, or {@link #NEVER}, also once every access was read
+     */
+    public int next()
+    {
+        if(!distances.hasRemaining())
+        {
+            if(read == count) return NEVER;
+
+            try
+            {
+                buffer.clear();
+                int bytes = (int) Math.min(buffer.capacity(), (count - read) * Integer.BYTES);
+                buffer.limit(bytes);
+                while(buffer.hasRemaining()) if(channel.read(buffer, read * Integer.BYTES + buffer.position()) < 0) throw new IOException("Next-use file is truncated");
+                distances.clear().limit(bytes / Integer.BYTES);
+            }
+            catch(IOException IOe)
+            {
+                throw new UncheckedIOException(IOe);
+            }
+        }
+
+        read++;
+        return distances.get();
+    }
+
+    /**
+     * Returns the number of accesses in the index.
+     * @return the number of accesses
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+        file.delete();
+    }
+
+
+    /**
+     * Records the block addresses of the accesses in order and builds the index from them.
+     */
+    public static class Builder implements AutoCloseable
+    {
+        private final File blocks;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK * Integer.BYTES).order(ByteOrder.nativeOrder());
+        private final IntBuffer chunk = buffer.asIntBuffer();
+        private long count;
+
+        /**
+         * Constructs a Builder spilling to a temporary file.
+         * @throws IOException if the temporary file could not be created
+         */
+        public Builder() throws IOException
+        {
+            blocks = File.createTempFile("blocks", ".bin");
+            blocks.deleteOnExit();
+            channel = FileChannel.open(blocks.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Records an access.
+         * @param block the block address of the access, non-negative
+         * @throws IOException if a full chunk could not be spilled
+         */
+        public void add(int block) throws IOException
+        {
+            chunk.put(block);
+            count++;
+            if(!chunk.hasRemaining()) spill();
+        }
+
+        /**
+         * Computes the next-use distance of every recorded access, scanning the chunks from the last one.
+         * @return the index, read from the first access
+         * @throws IOException if a temporary file could not be read or written
+         */
+        public NextUseIndex build() throws IOException
+        {
+            spill();
+
+            File nextUses = File.createTempFile("next-use", ".bin");
+            nextUses.deleteOnExit();
+            BlockPositions last = new BlockPositions();
+
+            try(FileChannel out = FileChannel.open(nextUses.toPath(), StandardOpenOption.WRITE))
+            {
+                long chunks = (count + CHUNK - 1) / CHUNK;
+
+                for(long c = chunks - 1; c >= 0; c--)
+                {
+                    long start = c * CHUNK;
+                    int length = (int) Math.min(CHUNK, count - start);
+
+                    readFully(channel, buffer, start, length);
+                    for(int i = length - 1; i >= 0; i--)
+                    {
+                        //Distances replace the block addresses in place
+                        int block = chunk.get(i);
+                        long position = start + i;
+                        long next = last.put(block, position);
+                        chunk.put(i, next < 0 ? NEVER : (int) Math.min(next - position, NEVER - 1));
+                    }
+
+                    buffer.clear().limit(length * Integer.BYTES);
+                    while(buffer.hasRemaining()) out.write(buffer, start * Integer.BYTES + buffer.position());
+                }
+            }
+
+            close();
+            return new NextUseIndex(nextUses, count);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+            blocks.delete();
+        }
+
+        /**
+         * Writes the recorded part of the current chunk to the end of the block file.
+         * @throws IOException if the chunk could not be written
+         */
+        private void spill() throws IOException
+        {
+            int length = chunk.position();
+            if(length == 0) return;
+
+            buffer.clear().limit(length * Integer.BYTES);
+            long start = (count - length) * Integer.BYTES;
+            while(buffer.hasRemaining()) channel.write(buffer, start + buffer.position());
+            chunk.clear();
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long start, int length) throws IOException
+        {
+            buffer.clear().limit(length * Integer.BYTES);
+            while(buffer.hasRemaining()) if(channel.read(buffer, start * Integer.BYTES + buffer.position()) < 0) throw new IOException("Block file is truncated");
+        }
+    }
+
+
+    /**
+     * Open-addressing table from block address to the last position it was seen at, without boxing.
+     */
+    private static class BlockPositions
+    {
+        private static final int EMPTY = -1;
+
+        private int[] keys = new int[1 << 16];
+        private long[] positions = new long[1 << 16];
+        private int size;
+
+        private BlockPositions()
+        {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /**
+         * Records the position of a block.
+         * @param block the block address, non-negative
+         * @param position the position
+         * @return the previous position of the block, or -1 if it was not seen before
+         */
+        private long put(int block, long position)
+        {
+            int mask = keys.length - 1;
+            int mix = block * 0x9E3779B9;
+            int slot = (mix ^ (mix >>> 16)) & mask;
+
+            while(keys[slot] != EMPTY)
+            {
+                if(keys[slot] == block)
+                {
+                    long previous = positions[slot];
+                    positions[slot] = position;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = block;
+            positions[slot] = position;
+            if(++size * 2 > keys.length) grow();
+            return -1;
+        }
+
+        private void grow()
+        {
+            int[] oldKeys = keys;
+            long[] oldPositions = positions;
+            keys = new int[oldKeys.length * 2];
+            positions = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+
+            for(int i = 0; i < oldKeys.length; i++) if(oldKeys[i] != EMPTY) put(oldKeys[i], oldPositions[i]);
+        }
+    }
+}
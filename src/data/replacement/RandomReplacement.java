@@ -0,0 +1,39 @@
+package data.replacement;
+
+import java.util.SplittableRandom;
+
+/**
+ * Replaces a uniformly random way, drawn from the seeded random source of the simulation.
+ */
+public class RandomReplacement implements ReplacementState
+{
+    private final int associativity;
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a RandomReplacement.
+     * @param associativity the number of ways per set
+     * @param random the random source of the simulation
+     */
+    public RandomReplacement(int associativity, SplittableRandom random)
+    {
+        this.associativity = associativity;
+        this.random = random;
+    }
+
+    @Override
+    public void hit(int index, int way)
+    {
+    }
+
+    @Override
+    public void fill(int index, int way)
+    {
+    }
+
+    @Override
+    public int victim(int index)
+    {
+        return random.nextInt(associativity);
+    }
+}
@@ -0,0 +1,87 @@
+package data.replacement;
+
+import data.Policy;
+
+import java.util.SplittableRandom;
+
+/**
+ * Replacement metadata of every set of a cache, kept in primitive arrays indexed by set or by line
+ * ({@code set * associativity + way}) rather than in the blocks. The cache fills invalid ways first on its own and
+ * only asks for a victim once a set is full.
+ */
+public interface ReplacementState
+{
+    /**
+     * Records a hit.
+     * @param index the set index
+     * @param way the way that hit
+     */
+    void hit(int index, int way);
+
+    /**
+     * Records that a miss filled a way with a new block.
+     * @param index the set index
+     * @param way the way filled
+     */
+    void fill(int index, int way);
+
+    /**
+     * Records that a prefetch filled a way with a block that was not accessed yet. By default it is inserted like a
+     * block filled by a miss.
+     * @param index the set index
+     * @param way the way filled
+     */
+    default void prefetch(int index, int way)
+    {
+        fill(index, way);
+    }
+
+    /**
+     * Records that a block moved back from the victim cache filled a way. By default it is inserted like a block filled
+     * by a miss.
+     * @param index the set index
+     * @param way the way filled
+     */
+    default void swapIn(int index, int way)
+    {
+        fill(index, way);
+    }
+
+    /**
+     * Chooses the way to replace in a full set.
+     * @param index the set index
+     * @return the way to replace
+     */
+    int victim(int index);
+
+    /**
+     * Creates the replacement state of a policy. The optimal policy needs the accesses in advance and is built as a
+     * {@link BeladyReplacement} instead.
+     * @param policy the replacement policy
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     * @param random the random source of the simulation
+     * @return the replacement state
+     */
+    static ReplacementState create(Policy policy, int numSets, int associativity, SplittableRandom random)
+    {
+        switch(policy)
+        {
+            case Policy.Random -> {
+                return new RandomReplacement(associativity, random);
+            }
+            case Policy.LRU -> {
+                return new LruReplacement(numSets, associativity);
+            }
+            case Policy.PLRU -> {
+                return new TreePlruReplacement(numSets, associativity);
+            }
+            case Policy.SRRIP, Policy.BRRIP, Policy.DRRIP -> {
+                return new RripReplacement(policy, numSets, associativity);
+            }
+            default -> {
+                return new RoundRobinReplacement(numSets, associativity);
+            }
+        }
+    }
+}
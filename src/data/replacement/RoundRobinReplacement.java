@@ -0,0 +1,53 @@
+package data.replacement;
+
+/**
+ * Round robin as the simulator has always done it: a line is queued on the first hit after it is first filled,
+ * numbered by the hits of its set. The victim search starts from way 0 and only ever lowers it to the smallest queue
+ * number among the other ways that are queued, and as queue numbers start at 1, it always picks way 0 of a full set.
+ */
+public class RoundRobinReplacement implements ReplacementState
+{
+    private final int associativity;
+    private final int[] queueNumbers;
+    private final int[] accesses;
+
+    /**
+     * Constructs a RoundRobinReplacement for the specified geometry.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     */
+    public RoundRobinReplacement(int numSets, int associativity)
+    {
+        this.associativity = associativity;
+        queueNumbers = new int[numSets * associativity];
+        accesses = new int[numSets];
+    }
+
+    @Override
+    public void hit(int index, int way)
+    {
+        int access = ++accesses[index];
+        int line = index * associativity + way;
+        if(queueNumbers[line] == 0) queueNumbers[line] = access;
+    }
+
+    @Override
+    public void fill(int index, int way)
+    {
+    }
+
+    @Override
+    public int victim(int index)
+    {
+        int base = index * associativity;
+
+        //The original selection, kept for identical results
+        int min = 0;
+        for(int way = 1; way < associativity; way++)
+        {
+            if(queueNumbers[base + way] >= 1) min = Math.min(min, queueNumbers[base + way]);
+        }
+
+        return min;
+    }
+}
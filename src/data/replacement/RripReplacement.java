@@ -0,0 +1,194 @@
+package data.replacement;
+
+import data.Policy;
+
+import java.util.Arrays;
+
+/**
+ * Re-reference interval prediction (Jaleel et al., ISCA 2010) with 2-bit re-reference prediction values (RRPV) per
+ * line. A hit predicts a near re-reference (RRPV 0) and the victim is the first way predicted distant (RRPV 3),
+ * after ageing the whole set until one is.
+ * <ul>
+ *     <li>SRRIP inserts new blocks with a long re-reference interval (RRPV 2), so a scan is evicted before the blocks
+ *     that hit.</li>
+ *     <li>BRRIP inserts them distant (RRPV 3) except for one fill in 32, so a working set larger than the cache keeps
+ *     part of itself instead of thrashing.</li>
+ *     <li>DRRIP duels the two: 32 leader sets always use SRRIP and 32 always use BRRIP, a miss in a leader set moves
+ *     a 10-bit saturating PSEL counter against its policy, and the other sets follow whichever leads. Smaller caches
+ *     get at most a quarter of their sets as leaders of each kind, so half of the sets always follow. A cache with
+ *     fewer than 4 sets has no leaders, PSEL never moves from its midpoint, and DRRIP inserts exactly like SRRIP.</li>
+ * </ul>
+ */
+public class RripReplacement implements ReplacementState
+{
+    private static final byte MAX_RRPV = 3;
+    private static final byte LONG_RRPV = MAX_RRPV - 1;
+    private static final int BIMODAL_PERIOD = 32;
+    private static final int LEADER_SETS = 32;
+    private static final int PSEL_MAX = (1 << 10) - 1;
+
+    //Leader set kinds
+    private static final byte FOLLOWER = 0;
+    private static final byte SRRIP_LEADER = 1;
+    private static final byte BRRIP_LEADER = 2;
+
+    private final Policy policy;
+    private final int associativity;
+    private final byte[] rrpv;
+    private final byte[] leaders;
+    private int psel = PSEL_MAX / 2;
+    private int bimodalFills;
+
+    /**
+     * Constructs a RripReplacement for the specified policy and geometry.
+     * @param policy SRRIP, BRRIP or DRRIP
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set
+     */
+    public RripReplacement(Policy policy, int numSets, int associativity)
+    {
+        this.policy = policy;
+        this.associativity = associativity;
+        rrpv = new byte[numSets * associativity];
+        Arrays.fill(rrpv, MAX_RRPV);
+
+        leaders = new byte[numSets];
+        if(policy == Policy.DRRIP)
+        {
+            //Spread the leaders evenly, an SRRIP leader and a BRRIP leader at the start of each constituency of 4 or
+            //more sets, the rest of which follow PSEL
+            int leaderSets = Math.min(LEADER_SETS, numSets / 4);
+            for(int leader = 0; leader < leaderSets; leader++)
+            {
+                int index = leader * (numSets / leaderSets);
+                leaders[index] = SRRIP_LEADER;
+                leaders[index + 1] = BRRIP_LEADER;
+            }
+        }
+    }
+
+    @Override
+    public void hit(int index, int way)
+    {
+        rrpv[index * associativity + way] = 0;
+    }
+
+    @Override
+    public void fill(int index, int way)
+    {
+        insert(index, way, true);
+    }
+
+    /**
+     * Records a prefetched block, inserted like a block filled by a miss but without counting as a miss of the set
+     * for set dueling.
+     * @param index the set index
+     * @param way the way filled
+     */
+    @Override
+    public void prefetch(int index, int way)
+    {
+        insert(index, way, false);
+    }
+
+    /**
+     * Records a block moved back from the victim cache, inserted like a block filled by a miss but without counting as
+     * a miss of the set for set dueling.
+     * @param index the set index
+     * @param way the way filled
+     */
+    @Override
+    public void swapIn(int index, int way)
+    {
+        insert(index, way, false);
+    }
+
+    /**
+     * Inserts a new block with the re-reference interval of the policy of its set.
+     * @param index the set index
+     * @param way the way filled
+     * @param miss true if a demand miss filled the way, moving PSEL when the set is a leader
+     */
+    private void insert(int index, int way, boolean miss)
+    {
+        boolean bimodal = switch(policy)
+        {
+            case Policy.BRRIP -> true;
+            case Policy.DRRIP -> miss ? duel(index) : isBimodal(index);
+            default -> false;
+        };
+
+        int line = index * associativity + way;
+        if(!bimodal) rrpv[line] = LONG_RRPV;
+        else rrpv[line] = (++bimodalFills % BIMODAL_PERIOD == 0) ? LONG_RRPV : MAX_RRPV;
+    }
+
+    @Override
+    public int victim(int index)
+    {
+        int base = index * associativity;
+        int oldest = 0;
+
+        for(int way = 0; way < associativity; way++)
+        {
+            int value = rrpv[base + way];
+            if(value == MAX_RRPV) return way;
+            oldest = Math.max(oldest, value);
+        }
+
+        //Age the set until its oldest lines are predicted distant, in one pass
+        int age = MAX_RRPV - oldest;
+        int victim = -1;
+        for(int way = 0; way < associativity; way++)
+        {
+            rrpv[base + way] = (byte) (rrpv[base + way] + age);
+            if(victim < 0 && rrpv[base + way] == MAX_RRPV) victim = way;
+        }
+
+        return victim;
+    }
+
+    /**
+     * Records a miss for set dueling and chooses the insertion policy of a set.
+     * @param index the set index
+     * @return true to insert like BRRIP, false to insert like SRRIP
+     */
+    private boolean duel(int index)
+    {
+        if(leaders[index] == SRRIP_LEADER) psel = Math.min(PSEL_MAX, psel + 1);
+        else if(leaders[index] == BRRIP_LEADER) psel = Math.max(0, psel - 1);
+
+        return isBimodal(index);
+    }
+
+    /**
+     * Returns the insertion policy of a set under set dueling.
+     * @param index the set index
+     * @return true to insert like BRRIP, false to insert like SRRIP
+     */
+    private boolean isBimodal(int index)
+    {
+        switch(leaders[index])
+        {
+            case SRRIP_LEADER -> {
+                return false;
+            }
+            case BRRIP_LEADER -> {
+                return true;
+            }
+            default -> {
+                //Misses in SRRIP leaders push PSEL up, towards BRRIP
+                return psel > PSEL_MAX / 2;
+            }
+        }
+    }
+
+    /**
+     * Returns the policy selection counter of DRRIP.
+     * @return the PSEL counter
+     */
+    public int getPsel()
+    {
+        return psel;
+    }
+}
@@ -0,0 +1,75 @@
+package data.replacement;
+
+/**
+ * Tree pseudo-LRU replacement. Each set has a binary tree of {@code associativity - 1} bits over its ways, stored
+ * heap-ordered (node n has children 2n and 2n + 1) in one bit-vector per set. Every bit points towards the half that
+ * was used less recently: an access flips the bits on its path to point away from it, and the victim is found by
+ * following the bits from the root, both in log2(associativity) steps.
+ */
+public class TreePlruReplacement implements ReplacementState
+{
+    private final int associativity;
+    private final int levels;
+    private final int wordsPerSet;
+    private final long[] bits;
+
+    /**
+     * Constructs a TreePlruReplacement for the specified geometry.
+     * @param numSets the number of sets
+     * @param associativity the number of ways per set, a power of 2
+     */
+    public TreePlruReplacement(int numSets, int associativity)
+    {
+        this.associativity = associativity;
+        levels = Integer.numberOfTrailingZeros(associativity);
+        wordsPerSet = (associativity + 63) >>> 6;
+        bits = new long[numSets * wordsPerSet];
+    }
+
+    @Override
+    public void hit(int index, int way)
+    {
+        touch(index, way);
+    }
+
+    @Override
+    public void fill(int index, int way)
+    {
+        touch(index, way);
+    }
+
+    @Override
+    public int victim(int index)
+    {
+        int base = index * wordsPerSet;
+        int node = 1;
+
+        for(int level = 0; level < levels; level++)
+        {
+            int direction = (int) (bits[base + (node >>> 6)] >>> node) & 1;
+            node = 2 * node + direction;
+        }
+
+        return node - associativity;
+    }
+
+    /**
+     * Points every node on the path to a way at the other half of its subtree.
+     * @param index the set index
+     * @param way the way accessed
+     */
+    private void touch(int index, int way)
+    {
+        int base = index * wordsPerSet;
+        int node = 1;
+
+        for(int level = levels - 1; level >= 0; level--)
+        {
+            int direction = (way >>> level) & 1;
+            long mask = 1L << node;
+            if(direction == 0) bits[base + (node >>> 6)] |= mask;
+            else bits[base + (node >>> 6)] &= ~mask;
+            node = 2 * node + direction;
+        }
+    }
+}
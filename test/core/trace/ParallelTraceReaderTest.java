@@ -0,0 +1,62 @@
+package core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that parallel decoding on the boundaries of a sidecar index gives the same records as a sequential read.
+ * Usage: ParallelTraceReaderTest [trace]
+ */
+public class ParallelTraceReaderTest
+{
+    public static void main(String[] args) throws IOException
+    {
+        File original = new File(args.length > 0 ? args[0] : "Trace Files/Trace1.trc");
+
+        //Index a copy, so no sidecar is left next to the original
+        File directory = Files.createTempDirectory("parallel-trace").toFile();
+        File trace = new File(directory, original.getName());
+        File sidecar = TraceIndex.sidecar(trace);
+        Files.copy(original.toPath(), trace.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try
+        {
+            TraceIndex.build(trace, 1000).save(sidecar);
+            TraceIndex index = TraceIndex.load(trace);
+            if(index == null) throw new AssertionError("The sidecar index could not be loaded back");
+
+            long chunkSize = Math.max(1, trace.length() / 16);
+            List<TraceIndex.Range> ranges = index.split(16);
+            if(ranges.size() < 2) throw new AssertionError("The index should split the trace into several ranges");
+            if(ranges.get(0).getStart() != 0 || ranges.get(ranges.size() - 1).getEnd() != trace.length())
+                throw new AssertionError("The ranges should cover the whole trace");
+
+            long records;
+            try(TraceReader parallel = new ParallelTraceReader(trace, pool, chunkSize, index);
+                TraceReader sequential = TraceFiles.open(trace, DecodeMode.Sequential))
+            {
+                records = TraceCacheTest.compare(parallel, sequential);
+            }
+
+            try(TraceReader parallel = TraceFiles.open(trace, DecodeMode.Parallel);
+                TraceReader sequential = TraceFiles.open(trace, DecodeMode.Sequential))
+            {
+                TraceCacheTest.compare(parallel, sequential);
+            }
+
+            System.out.printf("ParallelTraceReaderTest: %d records decoded in %d indexed ranges\n", records, ranges.size());
+        }
+        finally
+        {
+            pool.shutdown();
+            sidecar.delete();
+            trace.delete();
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Checks that a trace cache whose directory cannot be created falls back to the uncached trace.
+ * Usage: TraceCacheTest [trace]
+ */
+public class TraceCacheTest
+{
+    public static void main(String[] args) throws IOException
+    {
+        File trace = new File(args.length > 0 ? args[0] : "Trace Files/TinyTrace.trc");
+
+        //A directory below a regular file can never be created, even with root privileges
+        File blocker = File.createTempFile("trace-cache", ".file");
+        blocker.deleteOnExit();
+        TraceCache cache = new TraceCache(new File(blocker, "sub"), TraceCache.DEFAULT_CAPACITY);
+
+        long records;
+        try(TraceReader cached = cache.open(trace, DecodeMode.Sequential);
+            TraceReader uncached = TraceFiles.open(trace, DecodeMode.Sequential))
+        {
+            records = compare(cached, uncached);
+        }
+
+        if(!blocker.isFile() || Files.size(blocker.toPath()) != 0)
+            throw new AssertionError("The cache wrote into " + blocker);
+
+        System.out.printf("TraceCacheTest: %d records read through an unwritable cache directory\n", records);
+    }
+
+    /**
+     * Returns the number of records read, failing on the first record that differs between the two readers.
+     * @param actual the reader under test
+     * @param expected the reference reader
+     * @return the number of records read
+     * @throws IOException if a trace could not be read
+     */
+    static long compare(TraceReader actual, TraceReader expected) throws IOException
+    {
+        long records = 0;
+        while(true)
+        {
+            int kind = expected.next();
+            if(actual.next() != kind) throw new AssertionError("Record kind differs at record " + records);
+            if(kind == TraceReader.END) return records;
+
+            if(actual.getAddress() != expected.getAddress() || actual.getLength() != expected.getLength()
+                    || (kind == TraceReader.WRITE && actual.getData() != expected.getData()))
+                throw new AssertionError("Record fields differ at record " + records);
+            records++;
+        }
+    }
+}
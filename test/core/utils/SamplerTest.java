@@ -0,0 +1,51 @@
+package core.utils;
+
+/**
+ * Checks the windows of a sampling schedule, including one where every instruction is simulated in detail.
+ * Usage: SamplerTest
+ */
+public class SamplerTest
+{
+    public static void main(String[] args)
+    {
+        check(run(1000, 100, 5000) == 5, "A 100 instruction window every 1000 instructions should give 5 samples");
+        check(run(1000, 1000, 5000) == 5, "A window as long as the period should give one sample per period");
+        check(run(1000, 1000, 500) == 1, "A detailed window cut short by the end of the trace should give a sample");
+
+        System.out.println("SamplerTest: passed");
+    }
+
+    /**
+     * Returns the number of samples taken over a trace of instructions that each hit once, driven like
+     * CPU.simulate drives the schedule.
+     * @param period the sampling period
+     * @param window the detailed window
+     * @param instructions the number of instructions in the trace
+     * @return the number of samples
+     */
+    private static int run(int period, int window, int instructions)
+    {
+        Sampler sampler = new Sampler(period, window);
+        Statistics statistics = new Statistics();
+
+        boolean detailed = sampler.start(statistics);
+        for(int instruction = 0; instruction < instructions; instruction++)
+        {
+            if(detailed)
+            {
+                statistics.incHits();
+                statistics.incCycles();
+                statistics.incInstructions();
+            }
+            detailed = sampler.nextInstruction(statistics);
+        }
+        sampler.finish(statistics);
+
+        return sampler.getSamples();
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,75 @@
+package data.replacement;
+
+import data.Policy;
+
+/**
+ * Checks that DRRIP keeps follower sets when the cache has few sets, that PSEL switches their insertion policy, that
+ * only demand misses move PSEL, and that DRRIP falls back to SRRIP with a single set.
+ * Usage: RripReplacementTest
+ */
+public class RripReplacementTest
+{
+    //Geometry with one SRRIP leader (set 0), one BRRIP leader (set 1) and two followers (sets 2 and 3)
+    private static final int SETS = 4;
+    private static final int WAYS = 2;
+    private static final int FOLLOWER = 2;
+
+    public static void main(String[] args)
+    {
+        RripReplacement drrip = new RripReplacement(Policy.DRRIP, SETS, WAYS);
+        check(evictsHitLine(drrip, FOLLOWER), "A follower should insert like SRRIP while PSEL is at its midpoint");
+
+        //Misses in the SRRIP leader push PSEL towards BRRIP
+        for(int miss = 0; miss < 1024; miss++) drrip.fill(0, drrip.victim(0));
+        check(drrip.getPsel() > 1023 / 2, "Misses in set 0 should move PSEL, set 0 is not an SRRIP leader");
+        check(!evictsHitLine(drrip, FOLLOWER), "A follower should insert like BRRIP once PSEL favours it");
+
+        //Misses in the BRRIP leader push it back
+        for(int miss = 0; miss < 1024; miss++) drrip.fill(1, drrip.victim(1));
+        check(drrip.getPsel() < 1023 / 2, "Misses in set 1 should move PSEL, set 1 is not a BRRIP leader");
+        check(evictsHitLine(drrip, FOLLOWER), "A follower should insert like SRRIP again once PSEL favours it");
+
+        //Prefetches and victim cache swap-ins are not demand misses of the leaders
+        int psel = drrip.getPsel();
+        for(int fill = 0; fill < 1024; fill++)
+        {
+            drrip.prefetch(0, drrip.victim(0));
+            drrip.swapIn(0, drrip.victim(0));
+            drrip.prefetch(1, drrip.victim(1));
+            drrip.swapIn(1, drrip.victim(1));
+            drrip.swapIn(1, drrip.victim(1));
+        }
+        check(drrip.getPsel() == psel, "Prefetches and swap-ins in the leader sets should not move PSEL");
+
+        //With a single set there are no leaders, so DRRIP is SRRIP
+        RripReplacement single = new RripReplacement(Policy.DRRIP, 1, WAYS);
+        for(int miss = 0; miss < 1024; miss++) single.fill(0, single.victim(0));
+        check(single.getPsel() == 1023 / 2, "A single set should not be a leader");
+        check(evictsHitLine(single, 0), "DRRIP with a single set should insert like SRRIP");
+
+        System.out.println("RripReplacementTest: passed");
+    }
+
+    /**
+     * Returns whether a line that hit once is evicted by three streaming misses in its set. SRRIP insertion lets the
+     * streamed lines age the hit line out, while BRRIP insertion evicts the streamed lines first.
+     * @param state the replacement state
+     * @param index the set index
+     * @return true if the hit line is evicted
+     */
+    private static boolean evictsHitLine(RripReplacement state, int index)
+    {
+        state.hit(index, 0);
+        for(int miss = 0; miss < 3; miss++)
+        {
+            state.fill(index, 1);
+            if(state.victim(index) == 0) return true;
+        }
+        return false;
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if(!condition) throw new AssertionError(message);
+    }
+}